@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание фильма " + name)
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(90)
+                .build();
+    }
+
+    static User user(String email) {
+        return User.builder()
+                .email(email)
+                .login("login")
+                .name("Имя")
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build();
+    }
+
+    static InMemoryFilmStorage films(int count) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < count; i++) {
+            filmStorage.create(film("Фильм " + i));
+        }
+        return filmStorage;
+    }
+
+    static InMemoryUserStorage users(int count) {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < count; i++) {
+            userStorage.create(user("user" + i + "@example.ru"));
+        }
+        return userStorage;
+    }
+
+    static void likes(InMemoryFilmStorage filmStorage, int users, int likesPerUser, Random random) {
+        int films = filmStorage.getLastId();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                filmStorage.addLike(random.nextInt(films) + 1, userId);
+            }
+        }
+    }
+
+    static void friends(InMemoryUserStorage userStorage, int friendsPerUser, Random random) {
+        int users = userStorage.getLastId();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < friendsPerUser / 2; i++) {
+                userStorage.link(userId, random.nextInt(users) + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Прогоняет JMH-бенчмарки с разным числом потоков.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec [-Dbenchmark.args="FilmStorage 1,4,8"]
+ * Первый аргумент - регулярное выражение для выбора бенчмарков, второй - список числа потоков.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        Set<Integer> threadCounts = new LinkedHashSet<>();
+        if (args.length > 1) {
+            Arrays.stream(args[1].split(",")).map(Integer::parseInt).forEach(threadCounts::add);
+        } else {
+            threadCounts.add(1);
+            threadCounts.add(4);
+            threadCounts.add(Runtime.getRuntime().availableProcessors());
+        }
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .result("target/jmh-result-" + threads + "-threads.json")
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
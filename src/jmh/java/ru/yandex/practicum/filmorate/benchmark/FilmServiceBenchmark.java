@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+    private static final int LIKES_PER_USER = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    private int films;
+
+    private FilmService filmService;
+    private InMemoryUserStorage userStorage;
+
+    @State(Scope.Thread)
+    public static class ThreadUser {
+        private int id;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmServiceBenchmark benchmark) {
+            id = benchmark.userStorage.create(BenchmarkData.user("thread-" + UUID.randomUUID() + "@example.ru"))
+                    .getId();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = BenchmarkData.films(films);
+        userStorage = BenchmarkData.users(films);
+        BenchmarkData.likes(filmStorage, films, LIKES_PER_USER, new Random(42));
+        filmService = new FilmService(filmStorage, userStorage);
+    }
+
+    @Benchmark
+    public void addAndDeleteLike(ThreadUser threadUser) {
+        int filmId = ThreadLocalRandom.current().nextInt(films) + 1;
+        filmService.addLike(filmId, threadUser.id);
+        filmService.deleteLike(filmId, threadUser.id);
+    }
+
+    @Benchmark
+    public List<Film> findMostPopularFilms() {
+        return filmService.findMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> findRecommendedFilms() {
+        return filmService.findRecommendedFilms(ThreadLocalRandom.current().nextInt(films) + 1, 10);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @Param({"1000", "100000"})
+    private int films;
+
+    private InMemoryFilmStorage filmStorage;
+    private final AtomicLong names = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(films);
+    }
+
+    @Benchmark
+    public Film create() {
+        return filmStorage.create(BenchmarkData.film("Новый фильм " + names.incrementAndGet()));
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(ThreadLocalRandom.current().nextInt(films) + 1);
+    }
+}
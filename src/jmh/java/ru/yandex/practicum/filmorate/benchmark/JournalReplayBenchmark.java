@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StoragePersistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Измеряет время восстановления хранилищ при старте: из журнала изменений и из снимка.
+ * Половина сущностей фильмы, половина пользователи; у каждого пользователя один лайк и один друг.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.jvmArgs=-Xmx12g
+ *   -Dbenchmark.mainClass=ru.yandex.practicum.filmorate.benchmark.JournalReplayBenchmark
+ *   -Dbenchmark.args=10000000
+ */
+public class JournalReplayBenchmark {
+    private static final int DEFAULT_ENTITIES = 10_000_000;
+
+    public static void main(String[] args) throws IOException {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTITIES;
+        Path directory = Files.createTempDirectory("filmorate-journal");
+        try {
+            long started = System.nanoTime();
+            StoragePersistence persistence = fill(directory, entities / 2);
+            report("Запись журнала", started, directory);
+            persistence.close();
+            persistence = null;
+
+            started = System.nanoTime();
+            persistence = replay(directory);
+            report("Восстановление из журнала", started, directory);
+
+            started = System.nanoTime();
+            persistence.snapshot();
+            persistence.close();
+            report("Запись снимка", started, directory);
+            persistence = null;
+
+            started = System.nanoTime();
+            replay(directory).close();
+            report("Восстановление из снимка", started, directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static StoragePersistence fill(Path directory, int count) throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = start(filmStorage, userStorage, directory);
+        for (int i = 0; i < count; i++) {
+            filmStorage.create(BenchmarkData.film("Фильм " + i));
+            userStorage.create(BenchmarkData.user("user" + i + "@example.ru"));
+        }
+        Random random = new Random(42);
+        BenchmarkData.likes(filmStorage, count, 1, random);
+        BenchmarkData.friends(userStorage, 2, random);
+        return persistence;
+    }
+
+    private static StoragePersistence replay(Path directory) throws IOException {
+        return start(new InMemoryFilmStorage(), new InMemoryUserStorage(), directory);
+    }
+
+    private static StoragePersistence start(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                            Path directory) throws IOException {
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, directory, false,
+                Duration.ZERO);
+        persistence.start();
+        return persistence;
+    }
+
+    private static void report(String phase, long started, Path directory) throws IOException {
+        long bytes;
+        try (Stream<Path> files = Files.list(directory)) {
+            bytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        System.out.printf("%-28s %8d мс, на диске %6d МБ%n", phase,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), bytes >> 20);
+    }
+}
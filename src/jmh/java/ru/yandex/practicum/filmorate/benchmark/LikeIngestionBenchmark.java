@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeQueue;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StoragePersistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Сравнивает пропускную способность лайков при синхронной записи и через очередь LikeQueue.
+ * Журнал включен с fsync, как в рабочей конфигурации; лайки сосредоточены на небольшом числе фильмов,
+ * как при выходе новинок.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec
+ *   -Dbenchmark.mainClass=ru.yandex.practicum.filmorate.benchmark.LikeIngestionBenchmark
+ *   -Dbenchmark.args="64 2000 10"
+ */
+public class LikeIngestionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int usersPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int films = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        run("Синхронно", false, threads, usersPerThread, films);
+        run("Через очередь", true, threads, usersPerThread, films);
+    }
+
+    private static void run(String mode, boolean async, int threads, int usersPerThread, int films)
+            throws Exception {
+        Path directory = Files.createTempDirectory("filmorate-likes");
+        InMemoryFilmStorage filmStorage = BenchmarkData.films(films);
+        InMemoryUserStorage userStorage = BenchmarkData.users(threads * usersPerThread);
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, directory, true,
+                Duration.ZERO);
+        LikeQueue likeQueue = new LikeQueue(filmStorage, async, 65536, 4096);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            persistence.start();
+            likeQueue.start();
+            FilmService filmService = new FilmService(filmStorage, userStorage, likeQueue);
+            Future<?>[] results = new Future<?>[threads];
+            long started = System.nanoTime();
+            for (int thread = 0; thread < threads; thread++) {
+                int firstUser = thread * usersPerThread + 1;
+                results[thread] = executor.submit(() -> {
+                    for (int userId = firstUser; userId < firstUser + usersPerThread; userId++) {
+                        filmService.addLike(userId % films + 1, userId);
+                    }
+                });
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long accepted = System.nanoTime() - started;
+            likeQueue.awaitAll();
+            long applied = System.nanoTime() - started;
+            long likes = (long) threads * usersPerThread;
+            System.out.printf("%-14s %10d лайков/с (приняты за %d мс, записаны за %d мс)%n", mode,
+                    likes * TimeUnit.SECONDS.toNanos(1) / applied, TimeUnit.NANOSECONDS.toMillis(accepted),
+                    TimeUnit.NANOSECONDS.toMillis(applied));
+        } finally {
+            executor.shutdown();
+            likeQueue.close();
+            persistence.close();
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
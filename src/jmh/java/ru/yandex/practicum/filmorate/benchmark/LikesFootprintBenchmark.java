@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.IntHashSet;
+
+import java.lang.ref.Reference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Сравнивает объем памяти, занимаемый списками лайков и друзей в разных представлениях.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec
+ *   -Dbenchmark.mainClass=ru.yandex.practicum.filmorate.benchmark.LikesFootprintBenchmark
+ */
+public class LikesFootprintBenchmark {
+    private static final int TOTAL_ENTRIES = 4_000_000;
+    private static final int MAX_ID = 10_000_000;
+    private static final int[] SET_SIZES = {10, 1_000, 1_000_000};
+
+    public static void main(String[] args) {
+        Map<String, Supplier<Set<Integer>>> representations = new LinkedHashMap<>();
+        representations.put("LinkedHashSet<Integer>", LinkedHashSet::new);
+        representations.put("ConcurrentHashMap.newKeySet()", ConcurrentHashMap::newKeySet);
+        representations.put("IntHashSet", IntHashSet::new);
+
+        System.out.printf("%-32s %12s %16s%n", "Представление", "Размер", "Байт на элемент");
+        for (int setSize : SET_SIZES) {
+            for (Map.Entry<String, Supplier<Set<Integer>>> representation : representations.entrySet()) {
+                double bytesPerEntry = measure(representation.getValue(), setSize);
+                System.out.printf("%-32s %12d %16.1f%n", representation.getKey(), setSize, bytesPerEntry);
+            }
+        }
+    }
+
+    private static double measure(Supplier<Set<Integer>> factory, int setSize) {
+        int setCount = Math.max(1, TOTAL_ENTRIES / setSize);
+        Random random = new Random(42);
+        long before = usedMemory();
+        List<Set<Integer>> sets = new ArrayList<>(setCount);
+        for (int i = 0; i < setCount; i++) {
+            Set<Integer> set = factory.get();
+            while (set.size() < setSize) {
+                int value = random.nextInt(MAX_ID) + 1;
+                if (set instanceof IntHashSet) {
+                    ((IntHashSet) set).add(value);
+                } else {
+                    set.add(value);
+                }
+            }
+            sets.add(set);
+        }
+        long after = usedMemory();
+        Reference.reachabilityFence(sets);
+        long entries = (long) setCount * setSize;
+        return (double) (after - before) / entries;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
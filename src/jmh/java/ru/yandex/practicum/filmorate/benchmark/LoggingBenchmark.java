@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность лайков и дружбы при включенном INFO-логировании в файл:
+ * синхронная запись, асинхронная, асинхронная с выборкой одного события из ста и без логов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+
+    @Param({"SYNC", "ASYNC", "ASYNC_SAMPLED", "OFF"})
+    private String logging;
+
+    private FilmService filmService;
+    private UserService userService;
+    private InMemoryUserStorage userStorage;
+    private File logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryFilmStorage filmStorage = BenchmarkData.films(FILMS);
+        userStorage = BenchmarkData.users(USERS);
+        BenchmarkData.likes(filmStorage, USERS, 10, new Random(42));
+        filmService = new FilmService(filmStorage, userStorage);
+        userService = new UserService(userStorage);
+        logFile = File.createTempFile("filmorate-benchmark", ".log");
+        configureLogging();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        logFile.delete();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadUser {
+        private int id;
+
+        @Setup(Level.Trial)
+        public void setUp(LoggingBenchmark benchmark) {
+            id = benchmark.userStorage.create(BenchmarkData.user("thread-" + UUID.randomUUID() + "@example.ru"))
+                    .getId();
+        }
+    }
+
+    @Benchmark
+    public void addAndDeleteLike(ThreadUser threadUser) {
+        int filmId = ThreadLocalRandom.current().nextInt(FILMS) + 1;
+        filmService.addLike(filmId, threadUser.id);
+        filmService.deleteLike(filmId, threadUser.id);
+    }
+
+    @Benchmark
+    public void addAndDeleteFriend(ThreadUser threadUser) {
+        int friendId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        userService.addFriend(threadUser.id, friendId);
+        userService.deleteFriend(threadUser.id, friendId);
+    }
+
+    private void configureLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel("OFF".equals(logging) ? ch.qos.logback.classic.Level.WARN
+                : ch.qos.logback.classic.Level.INFO);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5level [%thread] %logger{39} : %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setName("FILE");
+        file.setFile(logFile.getAbsolutePath());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> appender = file;
+        if (logging.startsWith("ASYNC")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+        if ("ASYNC_SAMPLED".equals(logging)) {
+            SampledLogFilter filter = new SampledLogFilter();
+            filter.setContext(context);
+            filter.setEvery(100);
+            filter.start();
+            context.addTurboFilter(filter);
+        }
+        root.addAppender(appender);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param({"1000", "100000"})
+    private int users;
+
+    @Param({"20", "500"})
+    private int friendsPerUser;
+
+    private UserService userService;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStorage = BenchmarkData.users(users);
+        BenchmarkData.friends(userStorage, Math.min(friendsPerUser, users), new Random(42));
+        userService = new UserService(userStorage);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadUser {
+        private int id;
+
+        @Setup(Level.Trial)
+        public void setUp(UserServiceBenchmark benchmark) {
+            id = benchmark.userStorage.create(BenchmarkData.user("thread-" + UUID.randomUUID() + "@example.ru"))
+                    .getId();
+        }
+    }
+
+    @Benchmark
+    public void addAndDeleteFriend(ThreadUser threadUser) {
+        int friendId = ThreadLocalRandom.current().nextInt(users) + 1;
+        userService.addFriend(threadUser.id, friendId);
+        userService.deleteFriend(threadUser.id, friendId);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userService.getFriends(ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+
+    @Benchmark
+    public List<User> findCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.findCommonFriends(random.nextInt(users) + 1, random.nextInt(users) + 1);
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Сравнивает режимы MVC и WebFlux под долгими соединениями. Медленные клиенты передают пакет лайков
+ * по несколько байт, одновременно быстрые клиенты запрашивают фильмы по id.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec
+ *   -Dbenchmark.mainClass=ru.yandex.practicum.filmorate.benchmark.WebModeLoadComparison
+ *   -Dbenchmark.args="500 16 10"
+ * Аргументы: число медленных клиентов, число быстрых клиентов, длительность замера в секундах
+ * и режимы через запятую (по умолчанию servlet,reactive).
+ */
+public class WebModeLoadComparison {
+    private static final int FILMS = 5000;
+    private static final int WARMUP_SECONDS = 5;
+    private static final int SLOW_UPLOAD_BYTES = 16;
+    private static final long SLOW_UPLOAD_INTERVAL_MS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int slowClients = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int fastClients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        List<String> modes = args.length > 3 ? List.of(args[3].split(",")) : List.of("servlet", "reactive");
+        for (String mode : modes) {
+            run(mode, slowClients, fastClients, seconds);
+        }
+    }
+
+    private static void run(String mode, int slowClients, int fastClients, int seconds) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties("server.port=0", "spring.main.web-application-type=" + mode,
+                        "logging.level.root=WARN", "filmorate.logging.appender=CONSOLE")
+                .run();
+        try {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            seed(client, port);
+            warmUp(client, port, fastClients);
+
+            List<SocketChannel> uploads = openUploads(port, slowClients);
+            ExecutorService executor = Executors.newFixedThreadPool(fastClients + 1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            try {
+                Future<?> uploader = executor.submit(() -> uploadSlowly(uploads, deadline));
+                List<Future<long[]>> results = new ArrayList<>();
+                for (int i = 0; i < fastClients; i++) {
+                    results.add(executor.submit(() -> requestFilms(client, port, deadline)));
+                }
+                long serverThreads = serverThreads();
+                List<Long> latencies = new ArrayList<>();
+                long failures = 0;
+                for (Future<long[]> result : results) {
+                    for (long latency : result.get()) {
+                        if (latency < 0) {
+                            failures++;
+                        } else {
+                            latencies.add(latency);
+                        }
+                    }
+                }
+                uploader.get();
+                long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+                System.out.printf("%-8s запросов/с %6d, p50 %7.1f мс, p99 %7.1f мс, ошибок %d, " +
+                                "медленных клиентов %d, потоков сервера %d%n",
+                        mode, sorted.length / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                        failures, uploads.size(), serverThreads);
+            } finally {
+                executor.shutdownNow();
+                for (SocketChannel upload : uploads) {
+                    upload.close();
+                }
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void seed(HttpClient client, int port) throws Exception {
+        String films = IntStream.range(0, FILMS)
+                .mapToObj(i -> "{\"name\":\"Фильм " + i + "\",\"description\":\"Описание фильма " + i + "\"," +
+                        "\"releaseDate\":\"2000-10-28\",\"duration\":90}")
+                .collect(Collectors.joining(",", "[", "]"));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url(port, "/films/batch")))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(films))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Не удалось загрузить фильмы: " + response.body());
+        }
+    }
+
+    private static void warmUp(HttpClient client, int port, int fastClients) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(fastClients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < fastClients; i++) {
+                results.add(executor.submit(() -> requestFilms(client, port, deadline)));
+            }
+            for (Future<long[]> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<SocketChannel> openUploads(int port, int count) throws Exception {
+        byte[] request = ("POST /films/likes/batch HTTP/1.1\r\nHost: localhost\r\n" +
+                "Content-Type: application/json\r\nContent-Length: 100000000\r\n\r\n[")
+                .getBytes(StandardCharsets.US_ASCII);
+        List<SocketChannel> uploads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SocketChannel upload = SocketChannel.open(new InetSocketAddress("localhost", port));
+            upload.write(ByteBuffer.wrap(request));
+            upload.configureBlocking(false);
+            uploads.add(upload);
+        }
+        return uploads;
+    }
+
+    private static void uploadSlowly(List<SocketChannel> uploads, long deadline) {
+        byte[] spaces = " ".repeat(SLOW_UPLOAD_BYTES).getBytes(StandardCharsets.US_ASCII);
+        try {
+            while (System.nanoTime() < deadline) {
+                for (SocketChannel upload : uploads) {
+                    upload.write(ByteBuffer.wrap(spaces));
+                }
+                Thread.sleep(SLOW_UPLOAD_INTERVAL_MS);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long[] requestFilms(HttpClient client, int port, long deadline) {
+        List<Long> latencies = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url(port,
+                            "/films/" + (ThreadLocalRandom.current().nextInt(FILMS) + 1))))
+                    .timeout(Duration.ofSeconds(2))
+                    .build();
+            long started = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                latencies.add(status == 200 ? System.nanoTime() - started : -1);
+            } catch (Exception e) {
+                latencies.add(-1L);
+            }
+        }
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long serverThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .map(Thread::getName)
+                .filter(name -> name.startsWith("http-nio") || name.startsWith("reactor-http")
+                        || name.startsWith("storage") || name.startsWith("task-"))
+                .count();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    private static String url(int port, String path) {
+        return "http://localhost:" + port + path;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Batches {
+    static final int MAX_BATCH_SIZE = 100_000;
+
+    private Batches() {
+    }
+
+    static <T> List<T> read(InputStream body, Class<T> type) throws IOException {
+        List<T> items = new ArrayList<>();
+        try (MappingIterator<T> iterator = Pagination.MAPPER.readerFor(type).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (items.size() == MAX_BATCH_SIZE) {
+                    throw new IncorrectParameterException("Пакет не может содержать больше " +
+                            MAX_BATCH_SIZE + " элементов");
+                }
+                items.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IncorrectParameterException("Некорректный элемент пакета №" + (items.size() + 1) + ": " +
+                    e.getOriginalMessage());
+        }
+        return items;
+    }
+
+    static <T> Mono<List<T>> collect(Flux<T> body) {
+        return body.take(MAX_BATCH_SIZE + 1)
+                .onErrorMap(ServerWebInputException.class, e -> new IncorrectParameterException(
+                        "Некорректный элемент пакета: " + originalMessage(e)))
+                .collectList()
+                .handle((items, sink) -> {
+                    if (items.size() > MAX_BATCH_SIZE) {
+                        sink.error(new IncorrectParameterException("Пакет не может содержать больше " +
+                                MAX_BATCH_SIZE + " элементов"));
+                    } else {
+                        sink.next(items);
+                    }
+                });
+    }
+
+    private static String originalMessage(Exception e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause instanceof JsonProcessingException ? ((JsonProcessingException) cause).getOriginalMessage()
+                : cause.getMessage();
+    }
+}
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import ru.yandex.practicum.filmorate.exception.*;
 import ru.yandex.practicum.filmorate.model.ErrorResponse;
 
@@ -17,6 +21,14 @@ public class ErrorHandler {
         return new ErrorResponse(String.format("Ошибка с полем \"%s\".", e.getParameter()));
     }
 
+    @ExceptionHandler({BindException.class, WebExchangeBindException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleBindException(final Exception e) {
+        FieldError fieldError = ((BindingResult) e).getFieldError();
+        return new ErrorResponse(String.format("Ошибка с полем \"%s\".",
+                fieldError == null ? "" : fieldError.getField()));
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleFilmNotFoundException(final FilmNotFoundException e) {
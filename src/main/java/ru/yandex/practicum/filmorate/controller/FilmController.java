@@ -2,46 +2,84 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/films")
 public class FilmController {
 
     private final FilmStorage filmStorage;
     private final FilmService filmService;
+    private final ResponseCache responseCache;
 
     @Autowired
-    public FilmController(InMemoryFilmStorage filmStorage, FilmService filmService) {
+    public FilmController(FilmStorage filmStorage, FilmService filmService, ResponseCache responseCache) {
         this.filmStorage = filmStorage;
         this.filmService = filmService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
     public Film create(@RequestBody Film film) {
-        return filmStorage.create(film);
+        Film createdFilm = filmStorage.create(film);
+        responseCache.filmsAdded();
+        return createdFilm;
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(InputStream body) throws IOException {
+        List<BatchItemResult> results = filmStorage.createAll(Batches.read(body, Film.class));
+        responseCache.filmsAdded();
+        return results;
     }
 
     @PutMapping
     public Film update(@RequestBody Film film) {
-        return filmStorage.update(film);
+        Film updatedFilm = filmStorage.update(film);
+        responseCache.filmChanged(film.getId());
+        return updatedFilm;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmStorage.getAllFilms();
+    public List<Film> getAllFilms(FilmFilter filter) {
+        return filmService.getAllFilms(filter);
+    }
+
+    @GetMapping(params = "limit")
+    public List<Film> getFilms(@RequestParam(defaultValue = "0") int after, @RequestParam int limit,
+                               FilmFilter filter) {
+        Pagination.checkPage(after, limit);
+        return filmService.getFilms(filter, after, limit);
+    }
+
+    @GetMapping(produces = Pagination.NDJSON)
+    public StreamingResponseBody streamFilms(FilmFilter filter) {
+        filmService.checkFilter(filter);
+        return Pagination.stream((after, limit) -> filmService.getFilms(filter, after, limit), Film::getId);
     }
 
     @GetMapping(path = {"/{id}"})
-    public Film getFilmById(@PathVariable Integer id) {
-        return filmStorage.getFilmById(id);
+    public Film getFilmById(@PathVariable Integer id, WebRequest request) {
+        long version = responseCache.filmVersion(id);
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return responseCache.get("films/" + id, version, () -> filmService.getFilmById(id));
     }
 
     public int getLastId() {
@@ -51,15 +89,47 @@ public class FilmController {
     @PutMapping({"/{id}/like/{userId}"})
     public void addLike(@PathVariable int id, @PathVariable int userId) {
         filmService.addLike(id, userId);
+        responseCache.filmChanged(id);
+    }
+
+    @PostMapping("/likes/batch")
+    public List<BatchItemResult> addLikes(InputStream body) throws IOException {
+        List<BatchItemResult> results = filmService.addLikes(Batches.read(body, Like.class));
+        responseCache.allFilmsChanged();
+        return results;
     }
 
     @DeleteMapping({"/{id}/like/{userId}"})
     public void deleteLike(@PathVariable int id, @PathVariable int userId) {
         filmService.deleteLike(id, userId);
+        responseCache.filmChanged(id);
     }
 
     @GetMapping({"/popular"})
-    public Set<Film> findMostPopularFilms(@RequestParam(defaultValue = "10", required = false) int count) {
-        return filmService.findMostPopularFilms(count);
+    public List<Film> findMostPopularFilms(@RequestParam(defaultValue = "10", required = false) int count,
+                                           FilmFilter filter, WebRequest request) {
+        long version = responseCache.filmsVersion();
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return responseCache.get("films/popular/" + count + "/" + filter, version,
+                () -> filmService.findMostPopularFilms(filter, count));
+    }
+
+    @GetMapping({"/search"})
+    public List<Film> searchFilms(@RequestParam(defaultValue = "", required = false) String q,
+                                  @RequestParam(defaultValue = "10", required = false) int count,
+                                  WebRequest request) {
+        long version = responseCache.filmsVersion();
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return responseCache.get("films/search/" + count + "/" + q, version, () -> filmService.searchFilms(q, count));
+    }
+
+    @GetMapping({"/trending"})
+    public List<Film> findTrendingFilms(@RequestParam(defaultValue = "24h", required = false) String window,
+                                        @RequestParam(defaultValue = "10", required = false) int count) {
+        return filmService.findTrendingFilms(window, count);
     }
 }
\ No newline at end of file
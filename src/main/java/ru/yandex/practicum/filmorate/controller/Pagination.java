@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+final class Pagination {
+    static final String NDJSON = "application/x-ndjson";
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .modulesToInstall(new ParameterNamesModule())
+            .build();
+
+    private Pagination() {
+    }
+
+    static void checkPage(int after, int limit) {
+        if (after < 0) {
+            throw new IncorrectParameterException("Параметр after не может быть отрицательным");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IncorrectParameterException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    static <T> StreamingResponseBody stream(BiFunction<Integer, Integer, List<T>> pages, ToIntFunction<T> idOf) {
+        return outputStream -> {
+            int after = 0;
+            List<T> page;
+            do {
+                page = pages.apply(after, MAX_PAGE_SIZE);
+                for (T item : page) {
+                    outputStream.write(MAPPER.writeValueAsBytes(item));
+                    outputStream.write('\n');
+                    after = idOf.applyAsInt(item);
+                }
+                outputStream.flush();
+            } while (page.size() == MAX_PAGE_SIZE);
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/films")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFilmController {
+    private final FilmStorage filmStorage;
+    private final FilmService filmService;
+    private final ResponseCache responseCache;
+    private final StorageScheduler storageScheduler;
+
+    @Autowired
+    ReactiveFilmController(FilmStorage filmStorage, FilmService filmService, ResponseCache responseCache,
+                           StorageScheduler storageScheduler) {
+        this.filmStorage = filmStorage;
+        this.filmService = filmService;
+        this.responseCache = responseCache;
+        this.storageScheduler = storageScheduler;
+    }
+
+    @PostMapping
+    public Mono<Film> create(@RequestBody Film film) {
+        return storageScheduler.call(() -> {
+            Film createdFilm = filmStorage.create(film);
+            responseCache.filmsAdded();
+            return createdFilm;
+        });
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createAll(@RequestBody Flux<Film> body) {
+        return Batches.collect(body).flatMap(films -> storageScheduler.call(() -> {
+            List<BatchItemResult> results = filmStorage.createAll(films);
+            responseCache.filmsAdded();
+            return results;
+        }));
+    }
+
+    @PutMapping
+    public Mono<Film> update(@RequestBody Film film) {
+        return storageScheduler.call(() -> {
+            Film updatedFilm = filmStorage.update(film);
+            responseCache.filmChanged(film.getId());
+            return updatedFilm;
+        });
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, Pagination.NDJSON})
+    public Flux<Film> getAllFilms(FilmFilter filter) {
+        filmService.checkFilter(filter);
+        return storageScheduler.pages((after, limit) -> filmService.getFilms(filter, after, limit), Film::getId);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<List<Film>> getFilms(@RequestParam(defaultValue = "0") int after, @RequestParam int limit,
+                                     FilmFilter filter) {
+        Pagination.checkPage(after, limit);
+        return storageScheduler.call(() -> filmService.getFilms(filter, after, limit));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Film> getFilmById(@PathVariable int id, ServerWebExchange exchange) {
+        long version = responseCache.filmVersion(id);
+        if (exchange.checkNotModified(responseCache.etag(version))) {
+            return Mono.empty();
+        }
+        return storageScheduler.call(() -> responseCache.get("films/" + id, version,
+                () -> filmService.getFilmById(id)));
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<Void> addLike(@PathVariable int id, @PathVariable int userId) {
+        return storageScheduler.run(() -> {
+            filmService.addLike(id, userId);
+            responseCache.filmChanged(id);
+        });
+    }
+
+    @PostMapping("/likes/batch")
+    public Mono<List<BatchItemResult>> addLikes(@RequestBody Flux<Like> body) {
+        return Batches.collect(body).flatMap(likes -> storageScheduler.call(() -> {
+            List<BatchItemResult> results = filmService.addLikes(likes);
+            responseCache.allFilmsChanged();
+            return results;
+        }));
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<Void> deleteLike(@PathVariable int id, @PathVariable int userId) {
+        return storageScheduler.run(() -> {
+            filmService.deleteLike(id, userId);
+            responseCache.filmChanged(id);
+        });
+    }
+
+    @GetMapping("/popular")
+    public Flux<Film> findMostPopularFilms(@RequestParam(defaultValue = "10", required = false) int count,
+                                           FilmFilter filter, ServerWebExchange exchange) {
+        long version = responseCache.filmsVersion();
+        if (exchange.checkNotModified(responseCache.etag(version))) {
+            return Flux.empty();
+        }
+        return storageScheduler.call(() -> responseCache.get("films/popular/" + count + "/" + filter, version,
+                () -> filmService.findMostPopularFilms(filter, count))).flatMapIterable(films -> films);
+    }
+
+    @GetMapping("/search")
+    public Flux<Film> searchFilms(@RequestParam(defaultValue = "", required = false) String q,
+                                  @RequestParam(defaultValue = "10", required = false) int count,
+                                  ServerWebExchange exchange) {
+        long version = responseCache.filmsVersion();
+        if (exchange.checkNotModified(responseCache.etag(version))) {
+            return Flux.empty();
+        }
+        return storageScheduler.call(() -> responseCache.get("films/search/" + count + "/" + q, version,
+                () -> filmService.searchFilms(q, count))).flatMapIterable(films -> films);
+    }
+
+    @GetMapping("/trending")
+    public Flux<Film> findTrendingFilms(@RequestParam(defaultValue = "24h", required = false) String window,
+                                        @RequestParam(defaultValue = "10", required = false) int count) {
+        return storageScheduler.call(() -> filmService.findTrendingFilms(window, count))
+                .flatMapIterable(films -> films);
+    }
+}
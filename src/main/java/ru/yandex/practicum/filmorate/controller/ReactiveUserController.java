@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final UserStorage userStorage;
+    private final UserService userService;
+    private final FilmService filmService;
+    private final ResponseCache responseCache;
+    private final StorageScheduler storageScheduler;
+
+    @Autowired
+    ReactiveUserController(UserStorage userStorage, UserService userService, FilmService filmService,
+                           ResponseCache responseCache, StorageScheduler storageScheduler) {
+        this.userStorage = userStorage;
+        this.userService = userService;
+        this.filmService = filmService;
+        this.responseCache = responseCache;
+        this.storageScheduler = storageScheduler;
+    }
+
+    @PostMapping
+    public Mono<User> create(@RequestBody User user) {
+        return storageScheduler.call(() -> {
+            User createdUser = userStorage.create(user);
+            responseCache.usersChanged();
+            return createdUser;
+        });
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createAll(@RequestBody Flux<User> body) {
+        return Batches.collect(body).flatMap(users -> storageScheduler.call(() -> {
+            List<BatchItemResult> results = userStorage.createAll(users);
+            responseCache.usersChanged();
+            return results;
+        }));
+    }
+
+    @PutMapping
+    public Mono<User> update(@RequestBody User user) {
+        return storageScheduler.call(() -> {
+            User updatedUser = userStorage.update(user);
+            responseCache.usersChanged();
+            return updatedUser;
+        });
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, Pagination.NDJSON})
+    public Flux<User> getAllUsers() {
+        return storageScheduler.pages(userStorage::getUsers, User::getId);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<List<User>> getUsers(@RequestParam(defaultValue = "0") int after, @RequestParam int limit) {
+        Pagination.checkPage(after, limit);
+        return storageScheduler.call(() -> userStorage.getUsers(after, limit));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<User> getUserById(@PathVariable int id) {
+        return storageScheduler.call(() -> userStorage.getUserById(id));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Mono<Void> addFriend(@PathVariable int id, @PathVariable int friendId) {
+        return storageScheduler.run(() -> {
+            userService.addFriend(id, friendId);
+            responseCache.usersChanged();
+        });
+    }
+
+    @PostMapping("/friends/batch")
+    public Mono<List<BatchItemResult>> addFriends(@RequestBody Flux<Friendship> body) {
+        return Batches.collect(body).flatMap(friendships -> storageScheduler.call(() -> {
+            List<BatchItemResult> results = userService.addFriends(friendships);
+            responseCache.usersChanged();
+            return results;
+        }));
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Mono<Void> deleteFriend(@PathVariable int id, @PathVariable int friendId) {
+        return storageScheduler.run(() -> {
+            userService.deleteFriend(id, friendId);
+            responseCache.usersChanged();
+        });
+    }
+
+    @GetMapping("/{id}/friends")
+    public Flux<User> getFriends(@PathVariable int id, ServerWebExchange exchange) {
+        long version = responseCache.usersVersion();
+        if (exchange.checkNotModified(responseCache.etag(version))) {
+            return Flux.empty();
+        }
+        return storageScheduler.call(() -> responseCache.get("users/" + id + "/friends", version,
+                () -> userService.getFriends(id))).flatMapIterable(friends -> friends);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Flux<User> findCommonFriends(@PathVariable int id, @PathVariable int otherId,
+                                        ServerWebExchange exchange) {
+        long version = responseCache.usersVersion();
+        if (exchange.checkNotModified(responseCache.etag(version))) {
+            return Flux.empty();
+        }
+        return storageScheduler.call(() -> responseCache.get("users/" + id + "/friends/common/" + otherId, version,
+                () -> userService.findCommonFriends(id, otherId))).flatMapIterable(friends -> friends);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Flux<User> findRecommendations(@PathVariable int id,
+                                          @RequestParam(defaultValue = "10", required = false) int limit) {
+        return storageScheduler.call(() -> userService.findRecommendations(id, limit))
+                .flatMapIterable(users -> users);
+    }
+
+    @GetMapping("/{id}/recommended-films")
+    public Flux<Film> findRecommendedFilms(@PathVariable int id,
+                                           @RequestParam(defaultValue = "10", required = false) int count) {
+        return storageScheduler.call(() -> filmService.findRecommendedFilms(id, count))
+                .flatMapIterable(films -> films);
+    }
+}
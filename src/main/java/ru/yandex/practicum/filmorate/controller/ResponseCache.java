@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов на чтение с версиями. Изменяющие запросы увеличивают версии, ответ хранится вместе с версией,
+ * прочитанной до его вычисления, поэтому устаревший ответ не отдается. Версия же служит ETag.
+ * Одинаковые одновременные запросы ждут одного вычисления.
+ */
+@Component
+class ResponseCache {
+    private static final int FILM_STRIPES = 1024;
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong films = new AtomicLong();
+    private final AtomicLong allFilms = new AtomicLong();
+    private final AtomicLongArray filmStripes = new AtomicLongArray(FILM_STRIPES);
+    private final AtomicLong users = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    long filmsVersion() {
+        return films.get();
+    }
+
+    long filmVersion(int id) {
+        return allFilms.get() + filmStripes.get(id & (FILM_STRIPES - 1));
+    }
+
+    long usersVersion() {
+        return users.get();
+    }
+
+    void filmsAdded() {
+        films.incrementAndGet();
+    }
+
+    void filmChanged(int id) {
+        filmStripes.incrementAndGet(id & (FILM_STRIPES - 1));
+        films.incrementAndGet();
+    }
+
+    void allFilmsChanged() {
+        allFilms.incrementAndGet();
+        films.incrementAndGet();
+    }
+
+    void usersChanged() {
+        users.incrementAndGet();
+    }
+
+    String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, long version, Supplier<T> loader) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.version < version) {
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+            Entry created = new Entry(version);
+            entry = entries.merge(key, created, (stored, fresh) -> stored.version >= fresh.version ? stored : fresh);
+            if (entry == created) {
+                try {
+                    created.value.complete(loader.get());
+                } catch (RuntimeException e) {
+                    entries.remove(key, created);
+                    created.value.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+
+        private Entry(long version) {
+            this.version = version;
+        }
+    }
+}
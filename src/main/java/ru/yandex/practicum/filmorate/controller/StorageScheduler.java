@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неблокирующий фасад над хранилищами и сервисами для реактивного режима. Вызовы могут ждать fsync журнала,
+ * JDBC или очередь лайков, поэтому выполняются в ограниченном пуле, а не в потоках событий Reactor Netty.
+ * Списки читаются постранично по мере того, как клиент забирает данные.
+ */
+class StorageScheduler implements DisposableBean {
+    private final Scheduler scheduler;
+
+    StorageScheduler(int threads, int queueCapacity) {
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "storage");
+    }
+
+    <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+
+    Mono<Void> run(Runnable run) {
+        return Mono.<Void>fromRunnable(run).subscribeOn(scheduler);
+    }
+
+    <T> Flux<T> pages(BiFunction<Integer, Integer, List<T>> pages, ToIntFunction<T> idOf) {
+        return call(() -> pages.apply(0, Pagination.MAX_PAGE_SIZE))
+                .expand(page -> {
+                    if (page.size() < Pagination.MAX_PAGE_SIZE) {
+                        return Mono.empty();
+                    }
+                    int after = idOf.applyAsInt(page.get(page.size() - 1));
+                    return call(() -> pages.apply(after, Pagination.MAX_PAGE_SIZE));
+                })
+                .flatMapIterable(page -> page);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
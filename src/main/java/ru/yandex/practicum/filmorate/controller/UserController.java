@@ -2,36 +2,61 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
-import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/users")
 public class UserController {
     private final UserStorage userStorage;
     private final UserService userService;
+    private final FilmService filmService;
+    private final ResponseCache responseCache;
 
 
     @Autowired
-    public UserController(InMemoryUserStorage userStorage, UserService userService) {
+    public UserController(UserStorage userStorage, UserService userService, FilmService filmService,
+                          ResponseCache responseCache) {
         this.userStorage = userStorage;
         this.userService = userService;
+        this.filmService = filmService;
+        this.responseCache = responseCache;
     }
 
     @PostMapping
     public User create(@RequestBody User user) {
-        return userStorage.create(user);
+        User createdUser = userStorage.create(user);
+        responseCache.usersChanged();
+        return createdUser;
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(InputStream body) throws IOException {
+        List<BatchItemResult> results = userStorage.createAll(Batches.read(body, User.class));
+        responseCache.usersChanged();
+        return results;
     }
 
     @PutMapping
     public User update(@RequestBody User user) {
-        return userStorage.update(user);
+        User updatedUser = userStorage.update(user);
+        responseCache.usersChanged();
+        return updatedUser;
     }
 
     @GetMapping
@@ -39,6 +64,17 @@ public class UserController {
         return userStorage.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public List<User> getUsers(@RequestParam(defaultValue = "0") int after, @RequestParam int limit) {
+        Pagination.checkPage(after, limit);
+        return userStorage.getUsers(after, limit);
+    }
+
+    @GetMapping(produces = Pagination.NDJSON)
+    public StreamingResponseBody streamUsers() {
+        return Pagination.stream(userStorage::getUsers, User::getId);
+    }
+
     @GetMapping({"/{id}"})
     public User getUserById(@PathVariable Integer id) {
         return userStorage.getUserById(id);
@@ -51,20 +87,50 @@ public class UserController {
     @PutMapping({"{id}/friends/{friendId}"})
     public void addFriend(@PathVariable int id, @PathVariable int friendId) {
         userService.addFriend(id, friendId);
+        responseCache.usersChanged();
+    }
+
+    @PostMapping("/friends/batch")
+    public List<BatchItemResult> addFriends(InputStream body) throws IOException {
+        List<BatchItemResult> results = userService.addFriends(Batches.read(body, Friendship.class));
+        responseCache.usersChanged();
+        return results;
     }
 
     @DeleteMapping({"/{id}/friends/{friendId}"})
     public void deleteFriend(@PathVariable int id, @PathVariable int friendId) {
         userService.deleteFriend(id, friendId);
+        responseCache.usersChanged();
     }
 
     @GetMapping({"{id}/friends"})
-    public Set<User> getFriends(@PathVariable Integer id) {
-        return userService.getFriends(id);
+    public List<User> getFriends(@PathVariable Integer id, WebRequest request) {
+        long version = responseCache.usersVersion();
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return responseCache.get("users/" + id + "/friends", version, () -> userService.getFriends(id));
     }
 
     @GetMapping({"{id}/friends/common/{otherId}"})
-    public Set<User> findCommonFriends(@PathVariable int id, @PathVariable int otherId) {
-        return userService.findCommonFriends(id, otherId);
+    public List<User> findCommonFriends(@PathVariable int id, @PathVariable int otherId, WebRequest request) {
+        long version = responseCache.usersVersion();
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return responseCache.get("users/" + id + "/friends/common/" + otherId, version,
+                () -> userService.findCommonFriends(id, otherId));
+    }
+
+    @GetMapping({"{id}/recommendations"})
+    public List<User> findRecommendations(@PathVariable int id,
+                                          @RequestParam(defaultValue = "10", required = false) int limit) {
+        return userService.findRecommendations(id, limit);
+    }
+
+    @GetMapping({"{id}/recommended-films"})
+    public List<Film> findRecommendedFilms(@PathVariable int id,
+                                           @RequestParam(defaultValue = "10", required = false) int count) {
+        return filmService.findRecommendedFilms(id, count);
     }
 }
\ No newline at end of file
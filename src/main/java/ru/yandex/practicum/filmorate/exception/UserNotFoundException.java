@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.exception;
 
 public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(final String message) {
-        super(message);
+        // Стек не заполняется: исключение означает ответ 404, а не ошибку в коде.
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Пропускает в среднем одно из every событий с маркером SAMPLED уровня не выше INFO.
+ * Решение принимается до форматирования сообщения, поэтому отброшенные события почти ничего не стоят.
+ * Предупреждения и ошибки не отбрасываются.
+ */
+public class SampledLogFilter extends TurboFilter {
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+
+    private int every = 1;
+
+    public void setEvery(int every) {
+        this.every = Math.max(1, every);
+    }
+
+    public int getEvery() {
+        return every;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (every == 1 || marker == null || !marker.contains(SAMPLED) || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextInt(every) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
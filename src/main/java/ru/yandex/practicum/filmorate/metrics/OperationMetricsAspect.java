@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет каждый вызов методов хранилищ и сервисов. Таймер filmorate.storage или filmorate.service
+ * с тегами класса, метода и исключения дает и число вызовов, и распределение времени.
+ */
+@Aspect
+@Component
+public class OperationMetricsAspect {
+    private final MeterRegistry registry;
+
+    public OperationMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.FilmStorage.*(..)) || " +
+            "execution(* ru.yandex.practicum.filmorate.storage.UserStorage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.storage", joinPoint);
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service.FilmService.*(..)) || " +
+            "execution(public * ru.yandex.practicum.filmorate.service.UserService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.service", joinPoint);
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        long started = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder(name)
+                    .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Размеры хранилищ и распределения числа лайков у фильмов и друзей у пользователей.
+ * Распределения пересчитываются не чаще раза в 15 секунд, чтобы частый опрос метрик не нагружал хранилища.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+
+    private final Cardinalities likes;
+    private final Cardinalities friends;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        this.likes = new Cardinalities(filmStorage::getLikeCounts);
+        this.friends = new Cardinalities(userStorage::getFriendCounts);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "filmorate.films", "filmorate.film.likes", likes);
+        bind(registry, "filmorate.users", "filmorate.user.friends", friends);
+    }
+
+    private static void bind(MeterRegistry registry, String sizeName, String name, Cardinalities cardinalities) {
+        Gauge.builder(sizeName, cardinalities, Cardinalities::size)
+                .description("Число записей в хранилище")
+                .register(registry);
+        Gauge.builder(name + ".total", cardinalities, Cardinalities::total)
+                .description("Сумма размеров множеств")
+                .register(registry);
+        for (double quantile : QUANTILES) {
+            Gauge.builder(name, cardinalities, value -> value.quantile(quantile))
+                    .tag("quantile", Double.toString(quantile))
+                    .description("Размер множества на заданном квантиле")
+                    .register(registry);
+        }
+    }
+
+    private static final class Cardinalities {
+        private final Supplier<int[]> source;
+        private int[] sorted;
+        private long total;
+        private long refreshed;
+
+        private Cardinalities(Supplier<int[]> source) {
+            this.source = source;
+        }
+
+        private synchronized int[] sorted() {
+            if (sorted == null || System.nanoTime() - refreshed > REFRESH_NANOS) {
+                int[] counts = source.get();
+                Arrays.sort(counts);
+                total = Arrays.stream(counts).asLongStream().sum();
+                sorted = counts;
+                refreshed = System.nanoTime();
+            }
+            return sorted;
+        }
+
+        private double size() {
+            return sorted().length;
+        }
+
+        private synchronized double total() {
+            sorted();
+            return total;
+        }
+
+        private double quantile(double quantile) {
+            int[] counts = sorted();
+            if (counts.length == 0) {
+                return 0;
+            }
+            return counts[Math.max(0, (int) Math.ceil(quantile * counts.length) - 1)];
+        }
+    }
+}
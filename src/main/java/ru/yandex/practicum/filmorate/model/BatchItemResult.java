@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Результат элемента пакета по его индексу в запросе. id заполняется только при создании фильма или пользователя;
+ * у лайков и дружеских связей своего id нет, для них успех означает лишь отсутствие error.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private int index;
+    private Integer id;
+    private String error;
+
+    public static BatchItemResult success(int index, Integer id) {
+        return new BatchItemResult(index, id, null);
+    }
+
+    public static BatchItemResult success(int index) {
+        return new BatchItemResult(index, null, null);
+    }
+
+    public static BatchItemResult failure(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,6 +9,7 @@ import java.util.Set;
 
 @Data
 @Builder
+@AllArgsConstructor
 public class Film {
     private int id;
     private String name;
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmFilter {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+    private Integer minDuration;
+    private Integer maxDuration;
+
+    public boolean hasConditions() {
+        return releasedFrom != null || releasedTo != null || minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        return (releasedFrom == null || !film.getReleaseDate().isBefore(releasedFrom))
+                && (releasedTo == null || !film.getReleaseDate().isAfter(releasedTo))
+                && (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+}
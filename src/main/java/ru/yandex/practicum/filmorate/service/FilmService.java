@@ -4,68 +4,222 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class FilmService {
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final LikeQueue likeQueue;
+    private final TrendingFilms trendingFilms;
 
-    @Autowired
     public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+        this(filmStorage, userStorage, new LikeQueue(filmStorage, false, 0, 0));
+    }
+
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeQueue likeQueue) {
+        this(filmStorage, userStorage, likeQueue, new TrendingFilms(Clock.systemUTC()));
+    }
+
+    @Autowired
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeQueue likeQueue,
+                       TrendingFilms trendingFilms) {
         this.filmStorage = filmStorage;
 
         this.userStorage = userStorage;
+        this.likeQueue = likeQueue;
+        this.trendingFilms = trendingFilms;
+    }
+
+    public Film getFilmById(int id) {
+        likeQueue.awaitFilm(id);
+        return filmStorage.findFilmById(id).orElseThrow(() -> filmNotFound(id));
+    }
+
+    public List<Film> getAllFilms() {
+        likeQueue.awaitAll();
+        return filmStorage.getAllFilms();
+    }
+
+    public List<Film> getFilms(int afterId, int limit) {
+        likeQueue.awaitAll();
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    public List<Film> getAllFilms(FilmFilter filter) {
+        return filter.hasConditions() ? getFilms(filter, 0, Integer.MAX_VALUE) : getAllFilms();
+    }
+
+    public List<Film> getFilms(FilmFilter filter, int afterId, int limit) {
+        checkFilter(filter);
+        likeQueue.awaitAll();
+        return filmStorage.getFilms(filter, afterId, limit);
     }
 
     public void addLike(int id, int userId) {
-        filmStorage.filmIdIsExist(id);
-        userStorage.userIdIsExist(userId);
-        Film film = filmStorage.getFilmById(id);
-        if (film.getLikes().contains(userId)) {
-            log.error("Один пользователь не может ставить несколько лайков одному фильму");
+        checkFilmAndUser(id, userId);
+        if (!likeQueue.add(id, userId)) {
+            log.warn("Пользователь с id {} уже поставил лайк фильму с id {}", userId, id);
             throw new FilmAlreadyExistException("Один пользователь не может ставить несколько лайков одному фильму");
         }
-        film.getLikes().add(userId);
-        filmStorage.update(film);
-        log.info("Пользователь " + userStorage.getUserById(userId) + " поставил лайк фильму "
-                + filmStorage.getFilmById(id));
+        trendingFilms.addLike(id, userId);
+        log.info(SampledLogFilter.SAMPLED, "Пользователь с id {} поставил лайк фильму с id {}", userId, id);
+    }
+
+    public List<BatchItemResult> addLikes(List<Like> likes) {
+        BatchItemResult[] results = new BatchItemResult[likes.size()];
+        IntStream.range(0, results.length).parallel().forEach(index -> {
+            Like like = likes.get(index);
+            if (!filmStorage.containsFilm(like.getFilmId())) {
+                results[index] = BatchItemResult.failure(index, "Некорректный id " + like.getFilmId());
+            } else if (!userStorage.containsUser(like.getUserId())) {
+                results[index] = BatchItemResult.failure(index, "Некорректный id " + like.getUserId());
+            }
+        });
+        List<Like> validLikes = new ArrayList<>();
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] == null) {
+                validLikes.add(likes.get(index));
+            }
+        }
+        boolean[] added = likeQueue.addAll(validLikes);
+        int addedCount = 0;
+        for (int index = 0, valid = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
+            }
+            if (added[valid++]) {
+                trendingFilms.addLike(likes.get(index).getFilmId(), likes.get(index).getUserId());
+                results[index] = BatchItemResult.success(index);
+                addedCount++;
+            } else {
+                results[index] = BatchItemResult.failure(index,
+                        "Один пользователь не может ставить несколько лайков одному фильму");
+            }
+        }
+        log.info("Добавлено лайков: {} из {}", addedCount, results.length);
+        return Arrays.asList(results);
     }
 
     public void deleteLike(int id, int userId) {
-        filmStorage.filmIdIsExist(id);
-        userStorage.userIdIsExist(userId);
-        if (!filmStorage.getFilmById(id).getLikes().contains(userId)) {
-            log.error("Невозможно удалить лайк.");
+        checkFilmAndUser(id, userId);
+        likeQueue.awaitFilm(id);
+        if (!filmStorage.removeLike(id, userId)) {
+            log.warn("Пользователь с id {} не ставил лайк фильму с id {}", userId, id);
             throw new UserNotFoundException("Вы еще не ставили лайк этому фильму.");
         }
-        filmStorage.getFilmById(id).getLikes().remove(userId);
-        filmStorage.update(filmStorage.getFilmById(id));
-        log.info("Пользователь " + userStorage.getUserById(userId) + " удалил лайк фильму "
-                + filmStorage.getFilmById(id));
+        trendingFilms.removeLike(id, userId);
+        log.info(SampledLogFilter.SAMPLED, "Пользователь с id {} удалил лайк фильму с id {}", userId, id);
     }
 
-    public Set<Film> findMostPopularFilms(Integer count) {
+    public List<Film> findMostPopularFilms(Integer count) {
+        return findMostPopularFilms(new FilmFilter(), count);
+    }
+
+    public List<Film> findMostPopularFilms(FilmFilter filter, Integer count) {
         if (count < 1) {
             throw new IncorrectParameterException("Указано неверное количество фильмов для формирования списка.");
         }
-        Set<Film> sortedByLikes = new LinkedHashSet<>();
-        List<Film> allFilms = filmStorage.getAllFilms();
-        log.info(allFilms.toString());
-        if (allFilms.size() != 0) {
-            Comparator<Film> comparator = Comparator.comparingInt((Film film) -> film.getLikes().size());
-            sortedByLikes = filmStorage.getAllFilms().stream().sorted(comparator.reversed()).limit(count)
-                    .collect(Collectors.toSet());
+        checkFilter(filter);
+        likeQueue.awaitAll();
+        List<Film> popularFilms = filmStorage.getPopularFilms(filter, count);
+        log.debug(SampledLogFilter.SAMPLED, "Сформирован список из {} самых популярных фильмов", popularFilms.size());
+        return popularFilms;
+    }
+
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new IncorrectParameterException("Поисковый запрос не может быть пустым");
+        }
+        if (count < 1 || count > MAX_SEARCH_RESULTS) {
+            throw new IncorrectParameterException("Количество найденных фильмов должно быть от 1 до " +
+                    MAX_SEARCH_RESULTS);
+        }
+        likeQueue.awaitAll();
+        List<Film> foundFilms = filmStorage.searchFilms(query, count);
+        log.debug(SampledLogFilter.SAMPLED, "По запросу {} найдено фильмов: {}", query, foundFilms.size());
+        return foundFilms;
+    }
+
+    public List<Film> findRecommendedFilms(int userId, int count) {
+        if (count < 1 || count > MAX_RECOMMENDATIONS) {
+            throw new IncorrectParameterException("Количество рекомендаций должно быть от 1 до " +
+                    MAX_RECOMMENDATIONS);
+        }
+        if (!userStorage.containsUser(userId)) {
+            throw userNotFound(userId);
         }
-        log.info("Сформирован список из " + count + " самых популярных фильмов" + sortedByLikes);
-        return sortedByLikes;
+        likeQueue.awaitAll();
+        List<Film> recommendedFilms = new ArrayList<>(count);
+        for (Integer filmId : filmStorage.getRecommendedFilms(userId, count)) {
+            filmStorage.findFilmById(filmId).ifPresent(recommendedFilms::add);
+        }
+        log.debug(SampledLogFilter.SAMPLED, "Для пользователя с id {} подобрано фильмов: {}",
+                userId, recommendedFilms.size());
+        return recommendedFilms;
+    }
+
+    public List<Film> findTrendingFilms(String window, int count) {
+        if (count < 1 || count > TrendingFilms.MAX_COUNT) {
+            throw new IncorrectParameterException("Количество фильмов в трендах должно быть от 1 до " +
+                    TrendingFilms.MAX_COUNT);
+        }
+        TrendingFilms.Window trendingWindow = TrendingFilms.Window.of(window);
+        List<Film> trendingFilmsList = new ArrayList<>(count);
+        for (int filmId : trendingFilms.getTrendingFilms(trendingWindow, count)) {
+            trendingFilmsList.add(getFilmById(filmId));
+        }
+        log.debug(SampledLogFilter.SAMPLED, "Сформирован список из {} фильмов в трендах за {}",
+                trendingFilmsList.size(), trendingWindow);
+        return trendingFilmsList;
+    }
+
+    public void checkFilter(FilmFilter filter) {
+        if (filter.getReleasedFrom() != null && filter.getReleasedTo() != null
+                && filter.getReleasedFrom().isAfter(filter.getReleasedTo())) {
+            throw new IncorrectParameterException("Параметр releasedFrom не может быть позже releasedTo");
+        }
+        if (filter.getMinDuration() != null && filter.getMaxDuration() != null
+                && filter.getMinDuration() > filter.getMaxDuration()) {
+            throw new IncorrectParameterException("Параметр minDuration не может быть больше maxDuration");
+        }
+    }
+
+    private void checkFilmAndUser(int id, int userId) {
+        if (!filmStorage.containsFilm(id)) {
+            throw filmNotFound(id);
+        }
+        if (!userStorage.containsUser(userId)) {
+            throw userNotFound(userId);
+        }
+    }
+
+    private static FilmNotFoundException filmNotFound(int id) {
+        log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id фильма {}", id);
+        return new FilmNotFoundException("Некорректный id " + id);
+    }
+
+    private static UserNotFoundException userNotFound(int id) {
+        log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id пользователя {}", id);
+        return new UserNotFoundException("Некорректный id " + id);
     }
 }
\ No newline at end of file
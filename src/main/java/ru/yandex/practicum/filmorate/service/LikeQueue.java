@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись лайков. Запрос только ставит лайк в ограниченную очередь, а один поток-писатель
+ * забирает их пачками, группирует по фильмам и применяет одним вызовом хранилища.
+ * Чтение фильма с еще не примененными лайками дожидается их записи, поэтому пользователь сразу видит свой лайк.
+ * Номер последнего поставленного в очередь лайка публикуется в enqueued, и читатели ждут его без блокировки
+ * очереди; производитель держит блокировку только на время неблокирующего offer, а при полной очереди ждет вне нее.
+ * Лайк уже подтвержден клиенту, поэтому при ошибке записи пачки лайки повторяются по одному.
+ * Без filmorate.likes.async.enabled лайки записываются синхронно. Очередь останавливается раньше,
+ * чем закрываются хранилища и журнал, поэтому принятые лайки не теряются при выключении.
+ */
+@Component
+@Slf4j
+public class LikeQueue implements SmartLifecycle, Closeable {
+    private static final long OFFER_TIMEOUT_MS = 100;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Like> queue;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Long> pendingFilms = new ConcurrentHashMap<>();
+    private final Lock enqueueLock = new ReentrantLock();
+    private final Object appliedMonitor = new Object();
+    private final AtomicLong enqueued = new AtomicLong();
+    private volatile long applied;
+    private volatile boolean running;
+    private Thread applier;
+
+    public LikeQueue(FilmStorage filmStorage,
+                     @Value("${filmorate.likes.async.enabled:false}") boolean enabled,
+                     @Value("${filmorate.likes.async.queue-capacity:65536}") int capacity,
+                     @Value("${filmorate.likes.async.batch-size:4096}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = enabled ? new ArrayBlockingQueue<>(capacity) : null;
+    }
+
+    @Override
+    public void start() {
+        if (enabled) {
+            applier = new Thread(this::run, "like-applier");
+            applier.setDaemon(true);
+            applier.start();
+            running = true;
+        }
+    }
+
+    public boolean add(int filmId, int userId) {
+        if (!running) {
+            return filmStorage.addLike(filmId, userId);
+        }
+        long key = key(filmId, userId);
+        if (!pending.add(key)) {
+            return false;
+        }
+        if (filmStorage.hasLike(filmId, userId)) {
+            pending.remove(key);
+            return false;
+        }
+        if (!enqueue(new Like(filmId, userId))) {
+            boolean added = filmStorage.addLike(filmId, userId);
+            pending.remove(key);
+            return added;
+        }
+        return true;
+    }
+
+    public boolean[] addAll(List<Like> likes) {
+        if (!running) {
+            return filmStorage.addLikes(likes);
+        }
+        boolean[] added = new boolean[likes.size()];
+        for (int index = 0; index < added.length; index++) {
+            added[index] = add(likes.get(index).getFilmId(), likes.get(index).getUserId());
+        }
+        return added;
+    }
+
+    public void awaitFilm(int filmId) {
+        Long sequence = pendingFilms.get(filmId);
+        if (sequence != null) {
+            await(sequence);
+            pendingFilms.remove(filmId, sequence);
+        }
+    }
+
+    public void awaitAll() {
+        await(enqueued.get());
+    }
+
+    @Override
+    public void stop() {
+        close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        if (applier == null) {
+            return;
+        }
+        running = false;
+        applier.interrupt();
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        enqueueLock.lock();
+        try {
+            List<Like> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            if (!rest.isEmpty()) {
+                apply(rest);
+            }
+        } finally {
+            enqueueLock.unlock();
+        }
+        applier = null;
+    }
+
+    private boolean enqueue(Like like) {
+        while (running) {
+            if (offer(like)) {
+                return true;
+            }
+            synchronized (appliedMonitor) {
+                try {
+                    appliedMonitor.wait(OFFER_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean offer(Like like) {
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            long sequence = enqueued.get() + 1;
+            Long previous = pendingFilms.put(like.getFilmId(), sequence);
+            if (queue.offer(like)) {
+                enqueued.set(sequence);
+                return true;
+            }
+            if (previous == null) {
+                pendingFilms.remove(like.getFilmId(), sequence);
+            } else {
+                pendingFilms.replace(like.getFilmId(), sequence, previous);
+            }
+            return false;
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Like> batch = new ArrayList<>(batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(List<Like> batch) {
+        List<Like> coalesced = new ArrayList<>(batch);
+        coalesced.sort(Comparator.comparingInt(Like::getFilmId));
+        try {
+            filmStorage.addLikes(coalesced);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать пачку из {} лайков, лайки будут записаны по одному", batch.size(), e);
+            for (Like like : coalesced) {
+                retry(like);
+            }
+        }
+        long sequence = applied;
+        for (Like like : batch) {
+            pending.remove(key(like.getFilmId(), like.getUserId()));
+            pendingFilms.remove(like.getFilmId(), ++sequence);
+        }
+        synchronized (appliedMonitor) {
+            applied = sequence;
+            appliedMonitor.notifyAll();
+        }
+    }
+
+    private void retry(Like like) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                filmStorage.addLike(like.getFilmId(), like.getUserId());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("Не удалось записать лайк пользователя с id {} фильму с id {}",
+                            like.getUserId(), like.getFilmId(), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void await(long sequence) {
+        if (applied >= sequence) {
+            return;
+        }
+        synchronized (appliedMonitor) {
+            while (applied < sequence) {
+                try {
+                    appliedMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Прервано ожидание записи лайков", e);
+                }
+            }
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+}
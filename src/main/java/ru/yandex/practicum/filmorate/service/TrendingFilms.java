@@ -0,0 +1,257 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.TopK;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лайки за скользящие окна 1h, 24h и 7d. У каждого фильма два кольца счетчиков: по минутам за час и по часам
+ * за неделю. Ячейка хранит номер своей минуты или часа вместе со счетчиком и обновляется через CAS,
+ * поэтому лайк не берет блокировок, а устаревшая ячейка обнуляется при первой записи в нее.
+ * Раз в минуту по всем счетчикам строится рейтинг с запасом кандидатов для каждого окна, а лайки до
+ * следующей перестройки только помечают фильм измененным. Чтение берет первые места рейтинга и пересчитывает
+ * лишь измененные фильмы. Рейтинг перестраивается раньше, если изменений стало больше запаса.
+ */
+@Component
+@Slf4j
+public class TrendingFilms {
+    public static final int MAX_COUNT = 100;
+
+    private static final int POOL_SIZE = 4 * MAX_COUNT;
+    private static final int MINUTES = 60;
+    private static final int HOURS = 7 * 24;
+    private static final int WEEK_MINUTES = HOURS * MINUTES;
+
+    private final Clock clock;
+    private final Map<Integer, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> likedAt = new ConcurrentHashMap<>();
+    private final Lock rebuildLock = new ReentrantLock();
+    private volatile Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private volatile Ranking ranking;
+
+    @Autowired
+    public TrendingFilms(FilmStorage filmStorage) {
+        this(Clock.systemUTC());
+        filmStorage.forEachLikeSince(clock.instant().minus(Duration.ofDays(7)),
+                (filmId, userId, time) -> record(filmId, userId, minute(time.toEpochMilli())));
+        log.info("Загружено лайков за последнюю неделю: {}", likedAt.size());
+    }
+
+    public TrendingFilms(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void addLike(int filmId, int userId) {
+        record(filmId, userId, minute(clock.millis()));
+    }
+
+    public void removeLike(int filmId, int userId) {
+        Integer minute = likedAt.remove(key(filmId, userId));
+        if (minute != null) {
+            change(filmId, minute, -1);
+        }
+    }
+
+    public int[] getTrendingFilms(Window window, int count) {
+        long now = minute(clock.millis());
+        Ranking current = actualRanking(now);
+        Set<Integer> recent = current.changed;
+        if (changed != recent) {
+            recent = new HashSet<>(recent);
+            recent.addAll(changed);
+        }
+        TopK top = new TopK(count);
+        int[] ids = current.ids[window.ordinal()];
+        int[] likes = current.likes[window.ordinal()];
+        for (int index = 0, taken = 0; index < ids.length && taken < count; index++) {
+            if (!recent.contains(ids[index])) {
+                top.offer(ids[index], likes[index]);
+                taken++;
+            }
+        }
+        for (int filmId : recent) {
+            Counters filmCounters = counters.get(filmId);
+            int filmLikes = filmCounters == null ? 0 : filmCounters.count(window, now);
+            if (filmLikes > 0) {
+                top.offer(filmId, filmLikes);
+            }
+        }
+        return top.ids();
+    }
+
+    private void record(int filmId, int userId, long minute) {
+        if (minute > minute(clock.millis()) - WEEK_MINUTES && likedAt.putIfAbsent(key(filmId, userId),
+                (int) minute) == null) {
+            change(filmId, minute, 1);
+        }
+    }
+
+    private void change(int filmId, long minute, int delta) {
+        Counters filmCounters = counters.computeIfAbsent(filmId, id -> new Counters());
+        filmCounters.add(minute, delta);
+        Counters mapped;
+        while ((mapped = counters.get(filmId)) != filmCounters) {
+            filmCounters = mapped == null ? counters.computeIfAbsent(filmId, id -> new Counters()) : mapped;
+            filmCounters.add(minute, delta);
+        }
+        changed.add(filmId);
+    }
+
+    private Ranking actualRanking(long now) {
+        Ranking current = ranking;
+        if (current != null && current.minute == now && changed.size() <= POOL_SIZE - MAX_COUNT) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            current = ranking;
+            if (current == null || current.minute != now || changed.size() > POOL_SIZE - MAX_COUNT) {
+                current = rebuild(now, current);
+                ranking = current;
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Ranking rebuild(long now, Ranking previous) {
+        Set<Integer> rebuildChanged = ConcurrentHashMap.newKeySet();
+        changed = rebuildChanged;
+        if (previous == null || now / MINUTES != previous.minute / MINUTES) {
+            likedAt.values().removeIf(minute -> minute <= now - WEEK_MINUTES);
+        }
+        Window[] windows = Window.values();
+        TopK[] tops = new TopK[windows.length];
+        for (Window window : windows) {
+            tops[window.ordinal()] = new TopK(POOL_SIZE);
+        }
+        for (Map.Entry<Integer, Counters> entry : counters.entrySet()) {
+            Counters filmCounters = entry.getValue();
+            for (Window window : windows) {
+                int filmLikes = filmCounters.count(window, now);
+                if (filmLikes > 0) {
+                    tops[window.ordinal()].offer(entry.getKey(), filmLikes);
+                }
+            }
+            counters.computeIfPresent(entry.getKey(),
+                    (id, stored) -> stored.count(Window.WEEK, now) == 0 ? null : stored);
+        }
+        int[][] ids = new int[windows.length][];
+        int[][] likes = new int[windows.length][];
+        for (Window window : windows) {
+            ids[window.ordinal()] = tops[window.ordinal()].ids();
+            likes[window.ordinal()] = tops[window.ordinal()].scores();
+        }
+        return new Ranking(now, ids, likes, rebuildChanged);
+    }
+
+    private static long minute(long millis) {
+        return TimeUnit.MILLISECONDS.toMinutes(millis);
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    public enum Window {
+        HOUR("1h", 1, MINUTES),
+        DAY("24h", MINUTES, 24),
+        WEEK("7d", MINUTES, HOURS);
+
+        private final String name;
+        private final int bucketMinutes;
+        private final int buckets;
+
+        Window(String name, int bucketMinutes, int buckets) {
+            this.name = name;
+            this.bucketMinutes = bucketMinutes;
+            this.buckets = buckets;
+        }
+
+        public static Window of(String name) {
+            for (Window window : values()) {
+                if (window.name.equals(name)) {
+                    return window;
+                }
+            }
+            throw new IncorrectParameterException("Окно трендов должно быть одним из: 1h, 24h, 7d");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Counters {
+        private final AtomicLongArray minutes = new AtomicLongArray(MINUTES);
+        private final AtomicLongArray hours = new AtomicLongArray(HOURS);
+
+        void add(long minute, int delta) {
+            add(minutes, minute, delta);
+            add(hours, minute / MINUTES, delta);
+        }
+
+        int count(Window window, long minute) {
+            AtomicLongArray ring = window.bucketMinutes == 1 ? minutes : hours;
+            long bucket = minute / window.bucketMinutes;
+            int count = 0;
+            for (int index = 0; index < ring.length(); index++) {
+                long slot = ring.get(index);
+                long slotBucket = slot >>> 32;
+                if (slotBucket <= bucket && slotBucket > bucket - window.buckets) {
+                    count += (int) slot;
+                }
+            }
+            return Math.max(count, 0);
+        }
+
+        private static void add(AtomicLongArray ring, long bucket, int delta) {
+            int index = (int) (bucket % ring.length());
+            while (true) {
+                long slot = ring.get(index);
+                long slotBucket = slot >>> 32;
+                long updated;
+                if (slotBucket == bucket) {
+                    updated = (bucket << 32) | (((int) slot + delta) & 0xFFFFFFFFL);
+                } else if (slotBucket < bucket && delta > 0) {
+                    updated = (bucket << 32) | delta;
+                } else {
+                    return;
+                }
+                if (ring.compareAndSet(index, slot, updated)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Ranking {
+        private final long minute;
+        private final int[][] ids;
+        private final int[][] likes;
+        private final Set<Integer> changed;
+
+        private Ranking(long minute, int[][] ids, int[][] likes, Set<Integer> changed) {
+            this.minute = minute;
+            this.ids = ids;
+            this.likes = likes;
+            this.changed = changed;
+        }
+    }
+}
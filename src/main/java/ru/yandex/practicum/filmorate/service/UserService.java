@@ -3,18 +3,23 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.UserAlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class UserService {
+    private static final int MAX_RECOMMENDATIONS = 100;
+
     private final UserStorage userStorage;
 
     @Autowired
@@ -23,70 +28,97 @@ public class UserService {
     }
 
     public void addFriend(int id, int friendId) {
-        userStorage.userIdIsExist(friendId);
-        userStorage.userIdIsExist(id);
-        User user = userStorage.getUserById(id);
-        User friend = userStorage.getUserById(friendId);
-        if (user.getFriends() == null) {
-            user.setFriends(new LinkedHashSet<>());
+        checkUsers(id, friendId);
+        if (!userStorage.link(id, friendId)) {
+            log.warn("Пользователь с id {} уже добавлен в друзья у пользователя с id {}", friendId, id);
+            throw new UserAlreadyExistException("Этот пользователь уже добавлен в друзья.");
         }
-        if (friend.getFriends() == null) {
-            friend.setFriends(new LinkedHashSet<>());
+        log.info(SampledLogFilter.SAMPLED, "Пользователи с id {} и {} добавлены в друзья", id, friendId);
+    }
+
+    public List<BatchItemResult> addFriends(List<Friendship> friendships) {
+        BatchItemResult[] results = new BatchItemResult[friendships.size()];
+        IntStream.range(0, results.length).parallel().forEach(index -> {
+            Friendship friendship = friendships.get(index);
+            if (!userStorage.containsUser(friendship.getFriendId())) {
+                results[index] = BatchItemResult.failure(index, "Некорректный id " + friendship.getFriendId());
+            } else if (!userStorage.containsUser(friendship.getUserId())) {
+                results[index] = BatchItemResult.failure(index, "Некорректный id " + friendship.getUserId());
+            }
+        });
+        List<Friendship> validFriendships = new ArrayList<>();
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] == null) {
+                validFriendships.add(friendships.get(index));
+            }
         }
-        if (!user.getFriends().add(friendId)) {
-            log.error("Пользователь с id " + friendId + " уже добавлен в друзья у пользователя" +
-                    userStorage.getUserById(id));
-            throw new UserAlreadyExistException("Этот пользователь уже добавлен в друзья.");
+        boolean[] linked = userStorage.linkAll(validFriendships);
+        int linkedCount = 0;
+        for (int index = 0, valid = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
+            }
+            if (linked[valid++]) {
+                results[index] = BatchItemResult.success(index);
+                linkedCount++;
+            } else {
+                results[index] = BatchItemResult.failure(index, "Этот пользователь уже добавлен в друзья.");
+            }
         }
-        log.info(user.toString());
-        userStorage.update(user);
-        log.info("Пользователь " + user.getName() + " добавлен в друзья");
-        friend.getFriends().add(id);
-        log.info(friend.toString());
-        userStorage.update(friend);
-        log.info("Пользователь " + userStorage.getUserById(friendId).getName() + " добавлен в  друзья");
+        log.info("Добавлено дружеских связей: {} из {}", linkedCount, results.length);
+        return Arrays.asList(results);
     }
 
     public void deleteFriend(int id, int friendId) {
-        userStorage.userIdIsExist(friendId);
-        userStorage.userIdIsExist(id);
-        if (!userStorage.getUserById(id).getFriends().contains(friendId)) {
-            log.error("Пользователя с id " + friendId + " нет в списке друзей.");
+        checkUsers(id, friendId);
+        if (!userStorage.unlink(id, friendId)) {
+            log.warn("Пользователя с id {} нет в списке друзей пользователя с id {}", friendId, id);
             throw new UserNotFoundException("Этого пользователя нет в друзьях.");
         }
-        userStorage.getUserById(id).getFriends().remove(friendId);
-        userStorage.update(userStorage.getUserById(id));
-        log.info("Пользователь " + userStorage.getUserById(friendId).getName() + " удален из друзей");
-        userStorage.getUserById(friendId).getFriends().remove(id);
-        userStorage.update(userStorage.getUserById(friendId));
-        log.info("Пользователь " + userStorage.getUserById(friendId).getName() + " удалил вас из друзей");
+        log.info(SampledLogFilter.SAMPLED, "Пользователи с id {} и {} удалены из друзей", id, friendId);
+    }
+
+    public List<User> getFriends(int id) {
+        List<User> friends = toUsers(userStorage.getFriends(id));
+        log.debug(SampledLogFilter.SAMPLED, "Список друзей пользователя с id {} сформирован: {}", id, friends);
+        return friends;
+    }
+
+    public List<User> findCommonFriends(int firstId, int secondId) {
+        List<User> commonFriends = toUsers(userStorage.getCommonFriends(firstId, secondId));
+        log.debug(SampledLogFilter.SAMPLED, "Список общих друзей пользователей с id {} и {} сформирован: {}",
+                firstId, secondId, commonFriends);
+        return commonFriends;
     }
 
-    public Set<User> getFriends(int id) {
-        userStorage.userIdIsExist(id);
-        Set<Integer> friendsId = userStorage.getUserById(id).getFriends();
-        Set<User> friends = new LinkedHashSet<>();
-        if (friendsId == null) {
-            friendsId = new LinkedHashSet<>();
+    public List<User> findRecommendations(int id, int limit) {
+        if (limit < 1 || limit > MAX_RECOMMENDATIONS) {
+            throw new IncorrectParameterException("Количество рекомендаций должно быть от 1 до " +
+                    MAX_RECOMMENDATIONS);
         }
-        for (Integer friendId : friendsId) {
-            friends.add(userStorage.getUserById(friendId));
+        List<User> recommendations = new ArrayList<>(limit);
+        for (Integer userId : userStorage.getFriendRecommendations(id, limit)) {
+            userStorage.findUserById(userId).ifPresent(recommendations::add);
         }
-        log.info("Список друзей сформирован: " + friends);
-        return friends;
+        log.debug(SampledLogFilter.SAMPLED, "Для пользователя с id {} подобрано рекомендаций: {}",
+                id, recommendations.size());
+        return recommendations;
+    }
+
+    private List<User> toUsers(Set<Integer> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Integer userId : ids) {
+            userStorage.findUserById(userId).ifPresent(users::add);
+        }
+        return users;
     }
 
-    public Set<User> findCommonFriends(int firstId, int secondId) {
-        userStorage.userIdIsExist(firstId);
-        userStorage.userIdIsExist(secondId);
-        HashSet<User> firstUserFriends = new HashSet<>(getFriends(firstId));
-        HashSet<User> secondUserFriends = new HashSet<>(getFriends(secondId));
-        try {
-            firstUserFriends.retainAll(secondUserFriends);
-        } catch (NullPointerException e) {
-            firstUserFriends = new HashSet<>();
+    private void checkUsers(int id, int friendId) {
+        for (int userId : new int[]{friendId, id}) {
+            if (!userStorage.containsUser(userId)) {
+                log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", userId);
+                throw new UserNotFoundException("Некорректный id " + userId);
+            }
         }
-        log.info("Список общих друзей сформирован: " + firstUserFriends);
-        return firstUserFriends;
     }
 }
\ No newline at end of file
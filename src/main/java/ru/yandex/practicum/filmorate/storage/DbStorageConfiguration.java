@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Источник данных создается только здесь: автоконфигурация JDBC исключена в application.properties,
+ * чтобы в режимах memory и mapped не открывалась база в ./db и не появлялась проверка ее здоровья.
+ * Настройки по-прежнему берутся из spring.datasource.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class DbStorageConfiguration {
+    public static final String SCHEMA_LOCATION = "classpath:db/schema.sql";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public DataSourceTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Bean
+    public SqlDataSourceScriptDatabaseInitializer filmorateSchemaInitializer(DataSource dataSource) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of(SCHEMA_LOCATION));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+        return new SqlDataSourceScriptDatabaseInitializer(dataSource, settings);
+    }
+}
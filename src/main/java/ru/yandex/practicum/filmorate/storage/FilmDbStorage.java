@@ -0,0 +1,310 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+@Slf4j
+public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS = "SELECT F.FILM_ID, F.FILM_NAME, F.DESCRIPTION, F.RELEASE_DATE, " +
+            "F.DURATION, ARRAY_AGG(L.USER_ID ORDER BY L.USER_ID) FILTER (WHERE L.USER_ID IS NOT NULL) AS LIKES " +
+            "FROM %s AS F LEFT JOIN LIKES AS L ON F.FILM_ID = L.FILM_ID " +
+            "GROUP BY F.FILM_ID, F.FILM_NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION ";
+    private static final String SEARCH_NAME = "REPLACE(LOWER(F.FILM_NAME), 'ё', 'е')";
+    private static final String SEARCH_DESCRIPTION = "REPLACE(LOWER(F.DESCRIPTION), 'ё', 'е')";
+    private static final int MAX_NEIGHBORS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert filmInsert;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("FILMS")
+                .usingColumns("FILM_NAME", "DESCRIPTION", "RELEASE_DATE", "DURATION")
+                .usingGeneratedKeyColumns("FILM_ID");
+    }
+
+    public List<Film> getAllFilms() {
+        return jdbcTemplate.query(String.format(SELECT_FILMS, "FILMS") + "ORDER BY F.FILM_ID", this::mapFilm);
+    }
+
+    public List<Film> getFilms(int afterId, int limit) {
+        return jdbcTemplate.query(String.format(SELECT_FILMS,
+                        "(SELECT * FROM FILMS WHERE FILM_ID > ? ORDER BY FILM_ID LIMIT ?)") + "ORDER BY F.FILM_ID",
+                this::mapFilm, afterId, limit);
+    }
+
+    public List<Film> getFilms(FilmFilter filter, int afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        String conditions = filterConditions(filter, args);
+        args.add(limit);
+        return jdbcTemplate.query(String.format(SELECT_FILMS, "(SELECT * FROM FILMS WHERE FILM_ID > ?" + conditions +
+                " ORDER BY FILM_ID LIMIT ?)") + "ORDER BY F.FILM_ID", this::mapFilm, args.toArray());
+    }
+
+    public Film create(Film film) {
+        StorageValidator.checkFilm(film);
+        Map<String, Object> values = new HashMap<>();
+        values.put("FILM_NAME", film.getName());
+        values.put("DESCRIPTION", film.getDescription());
+        values.put("RELEASE_DATE", Date.valueOf(film.getReleaseDate()));
+        values.put("DURATION", film.getDuration());
+        try {
+            film.setId(filmInsert.executeAndReturnKey(values).intValue());
+        } catch (DuplicateKeyException e) {
+            throw new FilmAlreadyExistException("Фильм с названием " + film.getName() + " уже существует.");
+        }
+        film.setLikes(new LinkedHashSet<>());
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return film;
+    }
+
+    @Transactional
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        BatchItemResult[] results = StorageValidator.checkAll(newFilms, StorageValidator::checkFilm);
+        List<Film> validFilms = new ArrayList<>();
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] == null) {
+                validFilms.add(newFilms.get(index));
+            }
+        }
+        int[] ids = JdbcRows.insertAll(jdbcTemplate, "INSERT INTO FILMS (FILM_NAME, DESCRIPTION, RELEASE_DATE, " +
+                        "DURATION) SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM FILMS WHERE FILM_NAME = ?)",
+                "FILM_ID", validFilms, (statement, film) -> {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    statement.setInt(4, film.getDuration());
+                    statement.setString(5, film.getName());
+                });
+        int created = 0;
+        for (int index = 0, valid = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
+            }
+            Film film = newFilms.get(index);
+            int id = ids[valid++];
+            if (id == 0) {
+                results[index] = BatchItemResult.failure(index,
+                        "Фильм с названием " + film.getName() + " уже существует.");
+            } else {
+                film.setId(id);
+                film.setLikes(new LinkedHashSet<>());
+                results[index] = BatchItemResult.success(index, id);
+                created++;
+            }
+        }
+        log.info("Добавлено фильмов: {} из {}", created, results.length);
+        return Arrays.asList(results);
+    }
+
+    @Transactional
+    public Film update(Film film) {
+        StorageValidator.checkFilm(film);
+        filmIdIsExist(film.getId());
+        try {
+            jdbcTemplate.update("UPDATE FILMS SET FILM_NAME = ?, DESCRIPTION = ?, RELEASE_DATE = ?, DURATION = ? " +
+                            "WHERE FILM_ID = ?", film.getName(), film.getDescription(),
+                    Date.valueOf(film.getReleaseDate()), film.getDuration(), film.getId());
+        } catch (DuplicateKeyException e) {
+            throw new FilmAlreadyExistException("Фильм с названием " + film.getName() + " уже существует.");
+        }
+        Set<Integer> storedLikes = getLikes(film.getId());
+        List<Integer> removedLikes = new ArrayList<>(storedLikes);
+        removedLikes.removeAll(film.getLikes());
+        List<Integer> addedLikes = new ArrayList<>(film.getLikes());
+        addedLikes.removeAll(storedLikes);
+        jdbcTemplate.batchUpdate("DELETE FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?",
+                removedLikes, JdbcRows.BATCH_SIZE, (statement, userId) -> {
+                    statement.setInt(1, film.getId());
+                    statement.setInt(2, userId);
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (?, ?)",
+                addedLikes, JdbcRows.BATCH_SIZE, (statement, userId) -> {
+                    statement.setInt(1, film.getId());
+                    statement.setInt(2, userId);
+                });
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return getFilmById(film.getId());
+    }
+
+    public Film getFilmById(int id) {
+        return findFilmById(id).orElseThrow(() -> new FilmNotFoundException("Некорректный id " + id));
+    }
+
+    public Optional<Film> findFilmById(int id) {
+        List<Film> films = jdbcTemplate.query(String.format(SELECT_FILMS,
+                "(SELECT * FROM FILMS WHERE FILM_ID = ?)"), this::mapFilm, id);
+        return films.isEmpty() ? Optional.empty() : Optional.of(films.get(0));
+    }
+
+    public boolean containsFilm(int id) {
+        return id > 0 && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM FILMS WHERE FILM_ID = ?)", Boolean.class, id));
+    }
+
+    public List<Film> getPopularFilms(int count) {
+        return jdbcTemplate.query(String.format(SELECT_FILMS, "FILMS") +
+                "ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?", this::mapFilm, count);
+    }
+
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        List<Object> args = new ArrayList<>();
+        String conditions = filterConditions(filter, args);
+        args.add(count);
+        return jdbcTemplate.query(String.format(SELECT_FILMS, "(SELECT * FROM FILMS WHERE TRUE" + conditions + ")") +
+                "ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?", this::mapFilm, args.toArray());
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(FilmSearchIndex.tokens(query));
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringJoiner conditions = new StringJoiner(" AND ");
+        StringJoiner nameMatches = new StringJoiner(" + ");
+        List<Object> conditionArgs = new ArrayList<>();
+        List<Object> nameArgs = new ArrayList<>();
+        for (String token : tokens) {
+            conditions.add("(" + SEARCH_NAME + " LIKE ? OR " + SEARCH_DESCRIPTION + " LIKE ?)");
+            nameMatches.add("CASE WHEN " + SEARCH_NAME + " LIKE ? THEN 1 ELSE 0 END");
+            conditionArgs.add("%" + token + "%");
+            conditionArgs.add("%" + token + "%");
+            nameArgs.add("%" + token + "%");
+        }
+        List<Object> args = new ArrayList<>(conditionArgs);
+        args.addAll(nameArgs);
+        args.add(limit);
+        return jdbcTemplate.query(String.format(SELECT_FILMS, "(SELECT * FROM FILMS AS F WHERE " + conditions + ")") +
+                "ORDER BY " + nameMatches + " DESC, F.FILM_ID LIMIT ?", this::mapFilm, args.toArray());
+    }
+
+    public int getLastId() {
+        Integer lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(FILM_ID), 0) FROM FILMS", Integer.class);
+        return lastId == null ? 0 : lastId;
+    }
+
+    public int[] getLikeCounts() {
+        return jdbcTemplate.queryForList("SELECT COUNT(L.USER_ID) FROM FILMS AS F " +
+                "LEFT JOIN LIKES AS L ON F.FILM_ID = L.FILM_ID GROUP BY F.FILM_ID", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public void forEachLikeSince(Instant since, LikeHandler handler) {
+        RowCallbackHandler rowHandler = resultSet -> handler.like(resultSet.getInt("FILM_ID"),
+                resultSet.getInt("USER_ID"), resultSet.getTimestamp("CREATED_AT").toInstant());
+        jdbcTemplate.query("SELECT FILM_ID, USER_ID, CREATED_AT FROM LIKES WHERE CREATED_AT >= ? ORDER BY CREATED_AT",
+                rowHandler, Timestamp.from(since));
+    }
+
+    public Set<Integer> getLikes(int id) {
+        filmIdIsExist(id);
+        return new LinkedHashSet<>(jdbcTemplate.queryForList(
+                "SELECT USER_ID FROM LIKES WHERE FILM_ID = ? ORDER BY USER_ID", Integer.class, id));
+    }
+
+    public boolean hasLike(int id, int userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?)", Boolean.class, id, userId));
+    }
+
+    public List<Integer> getRecommendedFilms(int userId, int limit) {
+        return jdbcTemplate.queryForList("WITH NEIGHBORS AS (SELECT L2.USER_ID, COUNT(*) AS OVERLAP " +
+                        "FROM LIKES AS L1 JOIN LIKES AS L2 ON L1.FILM_ID = L2.FILM_ID " +
+                        "WHERE L1.USER_ID = ? AND L2.USER_ID <> ? GROUP BY L2.USER_ID " +
+                        "ORDER BY OVERLAP DESC, L2.USER_ID LIMIT ?) " +
+                        "SELECT L.FILM_ID FROM NEIGHBORS AS N JOIN LIKES AS L ON L.USER_ID = N.USER_ID " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM LIKES AS M WHERE M.USER_ID = ? AND M.FILM_ID = L.FILM_ID) " +
+                        "GROUP BY L.FILM_ID ORDER BY SUM(N.OVERLAP) DESC, L.FILM_ID LIMIT ?",
+                Integer.class, userId, userId, MAX_NEIGHBORS, userId, limit);
+    }
+
+    public boolean addLike(int id, int userId) {
+        filmIdIsExist(id);
+        try {
+            jdbcTemplate.update("INSERT INTO LIKES (FILM_ID, USER_ID) VALUES (?, ?)", id, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Transactional
+    public boolean[] addLikes(List<Like> likes) {
+        return JdbcRows.applied(jdbcTemplate.batchUpdate("INSERT INTO LIKES (FILM_ID, USER_ID) SELECT ?, ? " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?)",
+                likes, JdbcRows.BATCH_SIZE, (statement, like) -> {
+                    statement.setInt(1, like.getFilmId());
+                    statement.setInt(2, like.getUserId());
+                    statement.setInt(3, like.getFilmId());
+                    statement.setInt(4, like.getUserId());
+                }), likes.size());
+    }
+
+    public boolean removeLike(int id, int userId) {
+        filmIdIsExist(id);
+        return jdbcTemplate.update("DELETE FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?", id, userId) > 0;
+    }
+
+    public void filmIdIsExist(int id) {
+        if (!containsFilm(id)) {
+            log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", id);
+            throw new FilmNotFoundException("Некорректный id " + id);
+        }
+    }
+
+    private static String filterConditions(FilmFilter filter, List<Object> args) {
+        StringBuilder conditions = new StringBuilder();
+        if (filter.getReleasedFrom() != null) {
+            conditions.append(" AND RELEASE_DATE >= ?");
+            args.add(Date.valueOf(filter.getReleasedFrom()));
+        }
+        if (filter.getReleasedTo() != null) {
+            conditions.append(" AND RELEASE_DATE <= ?");
+            args.add(Date.valueOf(filter.getReleasedTo()));
+        }
+        if (filter.getMinDuration() != null) {
+            conditions.append(" AND DURATION >= ?");
+            args.add(filter.getMinDuration());
+        }
+        if (filter.getMaxDuration() != null) {
+            conditions.append(" AND DURATION <= ?");
+            args.add(filter.getMaxDuration());
+        }
+        return conditions.toString();
+    }
+
+    private Film mapFilm(ResultSet resultSet, int rowNum) throws SQLException {
+        return Film.builder()
+                .id(resultSet.getInt("FILM_ID"))
+                .name(resultSet.getString("FILM_NAME"))
+                .description(resultSet.getString("DESCRIPTION"))
+                .releaseDate(resultSet.getDate("RELEASE_DATE").toLocalDate())
+                .duration(resultSet.getInt("DURATION"))
+                .likes(JdbcRows.toIds(resultSet.getArray("LIKES")))
+                .build();
+    }
+}
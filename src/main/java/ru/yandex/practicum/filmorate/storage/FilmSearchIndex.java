@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов. Слова приводятся к нижнему регистру, ё заменяется на е.
+ * Каждое слово запроса ищется как префикс по упорядоченному словарю, фильм должен содержать все слова запроса.
+ * Релевантность: вес слова в фильме (совпадение в названии весит больше) на его редкость среди фильмов,
+ * точное совпадение слова ценится выше совпадения по префиксу.
+ */
+final class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final double PREFIX_FACTOR = 0.5;
+
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Map<String, Integer>> filmTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void put(Film film) {
+        Map<String, Integer> terms = terms(film.getName(), film.getDescription());
+        lock.writeLock().lock();
+        try {
+            Map<String, Integer> storedTerms = filmTerms.put(film.getId(), terms);
+            if (storedTerms != null) {
+                for (String term : storedTerms.keySet()) {
+                    Map<Integer, Integer> films = postings.get(term);
+                    films.remove(film.getId());
+                    if (films.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(film.getId(), term.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int[] search(String query, int limit) {
+        Set<String> queryTokens = new LinkedHashSet<>(tokens(query));
+        if (queryTokens.isEmpty()) {
+            return new int[0];
+        }
+        Map<Integer, Double> scores = null;
+        lock.readLock().lock();
+        try {
+            double filmsCount = filmTerms.size();
+            for (String token : queryTokens) {
+                Map<Integer, Double> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Map<Integer, Integer>> term
+                        : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+                    Map<Integer, Integer> films = term.getValue();
+                    double idf = Math.log(1 + filmsCount / films.size());
+                    double factor = term.getKey().equals(token) ? 1 : PREFIX_FACTOR;
+                    for (Map.Entry<Integer, Integer> film : films.entrySet()) {
+                        if (scores == null || scores.containsKey(film.getKey())) {
+                            tokenScores.merge(film.getKey(), film.getValue() * idf * factor, Math::max);
+                        }
+                    }
+                }
+                if (scores != null) {
+                    for (Map.Entry<Integer, Double> film : tokenScores.entrySet()) {
+                        film.setValue(film.getValue() + scores.get(film.getKey()));
+                    }
+                }
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    return new int[0];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    static Map<String, Integer> terms(String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : tokens(name)) {
+            terms.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokens(description)) {
+            terms.merge(token, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int index = 0; index < text.length(); ) {
+            int codePoint = text.codePointAt(index);
+            index += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                codePoint = Character.toLowerCase(codePoint);
+                token.appendCodePoint(codePoint == 'ё' ? 'е' : codePoint);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -1,22 +1,61 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 public interface FilmStorage {
     List<Film> getAllFilms();
 
+    List<Film> getFilms(int afterId, int limit);
+
+    List<Film> getFilms(FilmFilter filter, int afterId, int limit);
+
     Film create(Film film);
 
+    List<BatchItemResult> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film getFilmById(int id);
 
+    Optional<Film> findFilmById(int id);
+
+    boolean containsFilm(int id);
+
+    List<Film> getPopularFilms(int count);
+
+    List<Film> getPopularFilms(FilmFilter filter, int count);
+
+    List<Film> searchFilms(String query, int limit);
+
     int getLastId();
 
     Set<Integer> getLikes(int id);
 
+    boolean hasLike(int id, int userId);
+
+    List<Integer> getRecommendedFilms(int userId, int limit);
+
+    int[] getLikeCounts();
+
+    void forEachLikeSince(Instant since, LikeHandler handler);
+
+    boolean addLike(int id, int userId);
+
+    boolean[] addLikes(List<Like> likes);
+
+    boolean removeLike(int id, int userId);
+
     void filmIdIsExist(int id);
+
+    interface LikeHandler {
+        void like(int filmId, int userId, Instant likedAt);
+    }
 }
\ No newline at end of file
@@ -1,128 +1,677 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int id = 0;
+    private static final int LOCK_STRIPES = 64;
+    private static final int PAGE_CAPACITY = 1024;
+    private static final int MAX_SCANNED_LIKES = 1000;
+    private static final int MAX_NEIGHBORS = 100;
+
+    private final Map<Integer, FilmRecord> films = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> likesCount = new HashMap<>();
+    private final NavigableSet<Integer> rating = new TreeSet<>(Comparator
+            .comparing((Integer filmId) -> likesCount.get(filmId), Comparator.reverseOrder())
+            .thenComparing(Comparator.naturalOrder()));
+    private final Map<String, Integer> filmIdsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, IntHashSet> filmsByUser = new ConcurrentHashMap<>();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final NavigableSet<Long> releaseDateIndex = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> durationIndex = new ConcurrentSkipListSet<>();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final Lock[] userLocks = new Lock[LOCK_STRIPES];
+    private final AtomicInteger id = new AtomicInteger();
+    private volatile WriteAheadLog journal;
+
+    public InMemoryFilmStorage() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            userLocks[i] = new ReentrantLock();
+        }
+    }
 
     public Film create(Film film) {
-        checkFilm(film);
-        films.forEach((key, value) -> {
-            if (value.getName().equals(film.getName())) {
-                throw new FilmAlreadyExistException("Фильм с названием " +
-                        film.getName() + " уже существует.");
+        StorageValidator.checkFilm(film);
+        List<CompletableFuture<Void>> written = new ArrayList<>(1);
+        Film createdFilm = insert(film, written);
+        WriteAheadLog.awaitAll(written);
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return createdFilm;
+    }
+
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        BatchItemResult[] results = StorageValidator.checkAll(newFilms, StorageValidator::checkFilm);
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        int created = 0;
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
             }
-        });
-        film.setId(getNewId());
-        film.setLikes(new LinkedHashSet<>());
-        films.put(film.getId(), Film.builder()
-                .id(film.getId())
-                .name(film.getName())
-                .description(film.getDescription())
-                .releaseDate(film.getReleaseDate())
-                .duration(film.getDuration())
-                .likes(film.getLikes())
-                .build()
-        );
-        log.info("Фильм с названием " + film.getName() + " добавлен");
-        return film;
+            try {
+                results[index] = BatchItemResult.success(index, insert(newFilms.get(index), written).getId());
+                created++;
+            } catch (FilmAlreadyExistException e) {
+                results[index] = BatchItemResult.failure(index, e.getMessage());
+            }
+        }
+        WriteAheadLog.awaitAll(written);
+        log.info("Добавлено фильмов: {} из {}", created, results.length);
+        return Arrays.asList(results);
     }
 
     public Film update(Film film) {
-        checkFilm(film);
-        filmIdIsExist(film.getId());
-        films.put(film.getId(), Film.builder()
-                .id(film.getId())
-                .name(film.getName())
-                .description(film.getDescription())
-                .releaseDate(film.getReleaseDate())
-                .duration(film.getDuration())
-                .likes(film.getLikes())
-                .build()
-        );
-        log.info("Фильм с названием " + film.getName() + " добавлен");
-        return film;
+        StorageValidator.checkFilm(film);
+        FilmRecord record = new FilmRecord(film.getId(), film, new IntHashSet(film.getLikes()));
+        CompletableFuture<Void> written;
+        Lock lock = lockFor(film.getId());
+        lock.lock();
+        try {
+            filmIdIsExist(film.getId());
+            Film storedFilm = films.get(film.getId()).snapshot;
+            if (!storedFilm.getName().equals(film.getName())) {
+                if (filmIdsByName.putIfAbsent(film.getName(), film.getId()) != null) {
+                    throw new FilmAlreadyExistException("Фильм с названием " +
+                            film.getName() + " уже существует.");
+                }
+                filmIdsByName.remove(storedFilm.getName(), film.getId());
+            }
+            reindexLikes(film.getId(), films.put(film.getId(), record).likes(), record.likes());
+            updateRating(film.getId(), record.likes().size());
+            searchIndex.put(record.snapshot);
+            reindexRanges(storedFilm, record.snapshot);
+            written = journal(JournalCodec.filmPut(record.snapshot));
+        } finally {
+            lock.unlock();
+        }
+        WriteAheadLog.await(written);
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return record.snapshot;
     }
 
     public List<Film> getAllFilms() {
-        ArrayList<Film> filmsList = new ArrayList<>();
-        for (Film value : films.values()) {
-            filmsList.add(Film.builder()
-                    .id(value.getId())
-                    .name(value.getName())
-                    .description(value.getDescription())
-                    .releaseDate(value.getReleaseDate())
-                    .duration(value.getDuration())
-                    .likes(value.getLikes())
-                    .build());
+        ArrayList<Film> filmsList = new ArrayList<>(films.size());
+        for (Integer filmId : films.keySet()) {
+            filmsList.add(snapshotOf(filmId));
         }
         return filmsList;
     }
 
+    public List<Film> getFilms(int afterId, int limit) {
+        return getFilms(new FilmFilter(), afterId, limit);
+    }
+
+    public List<Film> getFilms(FilmFilter filter, int afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+        int lastId = getLastId();
+        for (int filmId = Math.max(afterId, 0) + 1; filmId <= lastId && page.size() < limit; filmId++) {
+            Film film = snapshotOf(filmId);
+            if (film != null && filter.matches(film)) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
     public Film getFilmById(int id) {
-        filmIdIsExist(id);
-        Film film = films.get(id);
-        return Film.builder()
-                .id(film.getId())
-                .name(film.getName())
-                .description(film.getDescription())
-                .releaseDate(film.getReleaseDate())
-                .duration(film.getDuration())
-                .likes(film.getLikes())
-                .build();
+        return findFilmById(id).orElseThrow(() -> new FilmNotFoundException("Некорректный id " + id));
+    }
+
+    public Optional<Film> findFilmById(int id) {
+        return Optional.ofNullable(snapshotOf(id));
+    }
+
+    public boolean containsFilm(int id) {
+        return films.containsKey(id);
+    }
+
+    public List<Film> getPopularFilms(int count) {
+        List<Integer> popularIds = new ArrayList<>();
+        synchronized (rating) {
+            Iterator<Integer> iterator = rating.iterator();
+            while (iterator.hasNext() && popularIds.size() < count) {
+                popularIds.add(iterator.next());
+            }
+        }
+        List<Film> popularFilms = new ArrayList<>(popularIds.size());
+        for (Integer filmId : popularIds) {
+            popularFilms.add(snapshotOf(filmId));
+        }
+        return popularFilms;
+    }
+
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        if (!filter.hasConditions()) {
+            return getPopularFilms(count);
+        }
+        int[] filteredIds = filteredIds(filter);
+        TopK top = new TopK(Math.min(count, filteredIds.length));
+        synchronized (rating) {
+            for (int filmId : filteredIds) {
+                top.offer(filmId, likesCount.get(filmId));
+            }
+        }
+        int[] popularIds = top.ids();
+        List<Film> popularFilms = new ArrayList<>(popularIds.length);
+        for (int filmId : popularIds) {
+            popularFilms.add(snapshotOf(filmId));
+        }
+        return popularFilms;
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        int[] foundIds = searchIndex.search(query, limit);
+        List<Film> foundFilms = new ArrayList<>(foundIds.length);
+        for (int filmId : foundIds) {
+            foundFilms.add(snapshotOf(filmId));
+        }
+        return foundFilms;
+    }
+
+    public int[] getLikeCounts() {
+        synchronized (rating) {
+            return likesCount.values().stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public void forEachLikeSince(Instant since, LikeHandler handler) {
+        // Время лайков в памяти не хранится, поэтому после перезапуска тренды набираются заново.
     }
 
     public Set<Integer> getLikes(int id) {
-        filmIdIsExist(id);
-        Set<Integer> likes = films.get(id).getLikes();
-        if (likes == null) {
-            likes = new LinkedHashSet<>();
+        return getFilmById(id).getLikes();
+    }
+
+    public boolean hasLike(int id, int userId) {
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            filmIdIsExist(id);
+            return films.get(id).likes().contains(userId);
+        } finally {
+            lock.unlock();
         }
-        return likes;
+    }
+
+    public List<Integer> getRecommendedFilms(int userId, int limit) {
+        int[] ownFilms = likedFilms(userId);
+        IntHashSet excluded = new IntHashSet(ownFilms.length);
+        for (int filmId : ownFilms) {
+            excluded.add(filmId);
+        }
+        int[][] likers = Arrays.stream(ownFilms).parallel()
+                .mapToObj(this::likers)
+                .toArray(int[][]::new);
+        int[] neighborLikes = new int[Arrays.stream(likers).mapToInt(part -> part.length).sum()];
+        int count = 0;
+        for (int[] part : likers) {
+            System.arraycopy(part, 0, neighborLikes, count, part.length);
+            count += part.length;
+        }
+        Arrays.parallelSort(neighborLikes);
+        TopK topNeighbors = new TopK(MAX_NEIGHBORS);
+        for (int start = 0; start < count; ) {
+            int neighbor = neighborLikes[start];
+            int end = start + 1;
+            while (end < count && neighborLikes[end] == neighbor) {
+                end++;
+            }
+            if (neighbor != userId) {
+                topNeighbors.offer(neighbor, end - start);
+            }
+            start = end;
+        }
+        int[] neighbors = topNeighbors.ids();
+        int[] overlaps = topNeighbors.scores();
+        long[][] weighted = IntStream.range(0, neighbors.length).parallel()
+                .mapToObj(index -> weightedFilms(neighbors[index], overlaps[index], excluded))
+                .toArray(long[][]::new);
+        long[] candidates = new long[Arrays.stream(weighted).mapToInt(part -> part.length).sum()];
+        count = 0;
+        for (long[] part : weighted) {
+            System.arraycopy(part, 0, candidates, count, part.length);
+            count += part.length;
+        }
+        Arrays.parallelSort(candidates);
+        TopK topFilms = new TopK(limit);
+        for (int start = 0; start < count; ) {
+            int filmId = (int) (candidates[start] >>> 32);
+            int score = 0;
+            int end = start;
+            while (end < count && (int) (candidates[end] >>> 32) == filmId) {
+                score += (int) candidates[end++];
+            }
+            topFilms.offer(filmId, score);
+            start = end;
+        }
+        List<Integer> recommendations = new ArrayList<>(limit);
+        for (int filmId : topFilms.ids()) {
+            recommendations.add(filmId);
+        }
+        return recommendations;
+    }
+
+    public boolean addLike(int id, int userId) {
+        List<CompletableFuture<Void>> written = new ArrayList<>(1);
+        boolean added = addLike(id, userId, written);
+        WriteAheadLog.awaitAll(written);
+        return added;
+    }
+
+    public boolean[] addLikes(List<Like> likes) {
+        boolean[] added = new boolean[likes.size()];
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        int from = 0;
+        while (from < added.length) {
+            int id = likes.get(from).getFilmId();
+            int to = from + 1;
+            while (to < added.length && likes.get(to).getFilmId() == id) {
+                to++;
+            }
+            addLikes(id, likes, from, to, added, written);
+            from = to;
+        }
+        WriteAheadLog.awaitAll(written);
+        return added;
+    }
+
+    public boolean removeLike(int id, int userId) {
+        CompletableFuture<Void> written;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            filmIdIsExist(id);
+            FilmRecord record = films.get(id);
+            if (!record.likes().remove(userId)) {
+                return false;
+            }
+            record.publish();
+            unindexLike(id, userId);
+            updateRating(id, record.likes().size());
+            written = journal(JournalCodec.edge(JournalCodec.FILM_UNLIKE, id, userId));
+        } finally {
+            lock.unlock();
+        }
+        WriteAheadLog.await(written);
+        return true;
     }
 
     public int getNewId() {
-        return ++id;
+        return id.incrementAndGet();
     }
 
     public int getLastId() {
-        return id;
+        return id.get();
     }
 
-    private void checkFilm(Film film) {
-        if (StringUtils.isBlank(film.getName())) {
-            throw new IncorrectParameterException("Название фильма не может быть пустым");
+    private Film insert(Film film, List<CompletableFuture<Void>> written) {
+        int filmId = filmIdsByName.compute(film.getName(), (name, storedId) -> {
+            if (storedId != null) {
+                throw new FilmAlreadyExistException("Фильм с названием " + name + " уже существует.");
+            }
+            return getNewId();
+        });
+        if (!(film instanceof FilmSnapshot)) {
+            film.setId(filmId);
+            film.setLikes(new IntHashSet());
         }
-        if (film.getDescription().length() > 200) {
-            throw new IncorrectParameterException("Описание фильма не должно превышать 200 символов");
+        FilmRecord record = new FilmRecord(filmId, film, new IntHashSet());
+        Lock lock = lockFor(filmId);
+        lock.lock();
+        try {
+            films.put(filmId, record);
+            updateRating(filmId, 0);
+            searchIndex.put(record.snapshot);
+            reindexRanges(null, record.snapshot);
+            journal(JournalCodec.filmPut(record.snapshot), written);
+        } finally {
+            lock.unlock();
+        }
+        return record.snapshot;
+    }
+
+    private boolean addLike(int id, int userId, List<CompletableFuture<Void>> written) {
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            filmIdIsExist(id);
+            FilmRecord record = films.get(id);
+            if (!record.likes().add(userId)) {
+                return false;
+            }
+            record.publish();
+            indexLike(id, userId);
+            updateRating(id, record.likes().size());
+            journal(JournalCodec.edge(JournalCodec.FILM_LIKE, id, userId), written);
+            return true;
+        } finally {
+            lock.unlock();
         }
-        if (film.getReleaseDate() == null || film.getReleaseDate().toString().isBlank() ||
-                film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            throw new IncorrectParameterException("Дата релиза не может быть раньше 28.12.1895");
+    }
+
+    private void addLikes(int id, List<Like> likes, int from, int to, boolean[] added,
+                          List<CompletableFuture<Void>> written) {
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            FilmRecord record = films.get(id);
+            if (record == null) {
+                return;
+            }
+            IntHashSet filmLikes = record.likes();
+            int oldSize = filmLikes.size();
+            for (int index = from; index < to; index++) {
+                int userId = likes.get(index).getUserId();
+                added[index] = filmLikes.add(userId);
+                if (added[index]) {
+                    indexLike(id, userId);
+                    journal(JournalCodec.edge(JournalCodec.FILM_LIKE, id, userId), written);
+                }
+            }
+            if (filmLikes.size() != oldSize) {
+                record.publish();
+                updateRating(id, filmLikes.size());
+            }
+        } finally {
+            lock.unlock();
         }
-        if (film.getDuration() <= 0) {
-            throw new IncorrectParameterException("Продолжительность фильма должна быть больше нуля");
+    }
+
+    private int[] likedFilms(int userId) {
+        Lock lock = userLockFor(userId);
+        lock.lock();
+        try {
+            IntHashSet likedFilms = filmsByUser.get(userId);
+            if (likedFilms == null) {
+                return new int[0];
+            }
+            int[] filmIds = new int[Math.min(likedFilms.size(), MAX_SCANNED_LIKES)];
+            likedFilms.copyTo(filmIds, 0, filmIds.length);
+            return filmIds;
+        } finally {
+            lock.unlock();
         }
-        if (film.getLikes() == null) {
-            film.setLikes(new LinkedHashSet<>());
+    }
+
+    private int[] likers(int filmId) {
+        Lock lock = lockFor(filmId);
+        lock.lock();
+        try {
+            IntHashSet likes = films.get(filmId).likes();
+            int[] userIds = new int[Math.min(likes.size(), MAX_SCANNED_LIKES)];
+            likes.copyTo(userIds, 0, userIds.length);
+            return userIds;
+        } finally {
+            lock.unlock();
         }
     }
 
+    private long[] weightedFilms(int userId, int weight, IntHashSet excluded) {
+        int[] filmIds = likedFilms(userId);
+        long[] weighted = new long[filmIds.length];
+        int count = 0;
+        for (int filmId : filmIds) {
+            if (!excluded.contains(filmId)) {
+                weighted[count++] = ((long) filmId << 32) | weight;
+            }
+        }
+        return Arrays.copyOf(weighted, count);
+    }
+
+    private void indexLike(int filmId, int userId) {
+        Lock lock = userLockFor(userId);
+        lock.lock();
+        try {
+            filmsByUser.computeIfAbsent(userId, key -> new IntHashSet()).add(filmId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        Lock lock = userLockFor(userId);
+        lock.lock();
+        try {
+            IntHashSet likedFilms = filmsByUser.get(userId);
+            if (likedFilms != null) {
+                likedFilms.remove(filmId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reindexLikes(int filmId, IntHashSet oldLikes, IntHashSet newLikes) {
+        if (oldLikes != null) {
+            oldLikes.forEachInt(userId -> {
+                if (!newLikes.contains(userId)) {
+                    unindexLike(filmId, userId);
+                }
+            });
+        }
+        newLikes.forEachInt(userId -> {
+            if (oldLikes == null || !oldLikes.contains(userId)) {
+                indexLike(filmId, userId);
+            }
+        });
+    }
+
+    void attachJournal(WriteAheadLog journal) {
+        this.journal = journal;
+    }
+
+    void restore(Film film) {
+        Lock lock = lockFor(film.getId());
+        lock.lock();
+        try {
+            FilmRecord storedRecord = films.get(film.getId());
+            if (storedRecord != null) {
+                filmIdsByName.remove(storedRecord.snapshot.getName(), film.getId());
+            }
+            filmIdsByName.put(film.getName(), film.getId());
+            FilmRecord record = new FilmRecord(film.getId(), film, new IntHashSet(film.getLikes()));
+            films.put(film.getId(), record);
+            reindexLikes(film.getId(), storedRecord == null ? null : storedRecord.likes(), record.likes());
+            updateRating(film.getId(), record.likes().size());
+            searchIndex.put(record.snapshot);
+            reindexRanges(storedRecord == null ? null : storedRecord.snapshot, record.snapshot);
+            id.accumulateAndGet(film.getId(), Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void quiesce(Runnable action) {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        try {
+            action.run();
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> journal(byte[] record) {
+        WriteAheadLog journal = this.journal;
+        return journal == null ? null : journal.append(record);
+    }
+
+    private void journal(byte[] record, List<CompletableFuture<Void>> written) {
+        CompletableFuture<Void> future = journal(record);
+        if (future != null) {
+            written.add(future);
+        }
+    }
+
+    private void updateRating(int filmId, int likes) {
+        synchronized (rating) {
+            if (likesCount.containsKey(filmId)) {
+                rating.remove(filmId);
+            }
+            likesCount.put(filmId, likes);
+            rating.add(filmId);
+        }
+    }
+
+    private Lock lockFor(int filmId) {
+        return locks[filmId & (LOCK_STRIPES - 1)];
+    }
+
+    private Lock userLockFor(int userId) {
+        return userLocks[userId & (LOCK_STRIPES - 1)];
+    }
+
+    private void reindexRanges(Film storedFilm, Film film) {
+        releaseDateIndex.add(rangeKey(film.getReleaseDate().toEpochDay(), film.getId()));
+        durationIndex.add(rangeKey(film.getDuration(), film.getId()));
+        if (storedFilm != null && !storedFilm.getReleaseDate().equals(film.getReleaseDate())) {
+            releaseDateIndex.remove(rangeKey(storedFilm.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        if (storedFilm != null && storedFilm.getDuration() != film.getDuration()) {
+            durationIndex.remove(rangeKey(storedFilm.getDuration(), film.getId()));
+        }
+    }
+
+    private int[] filteredIds(FilmFilter filter) {
+        NavigableSet<Long> byReleaseDate = null;
+        NavigableSet<Long> byDuration = null;
+        if (filter.getReleasedFrom() != null || filter.getReleasedTo() != null) {
+            byReleaseDate = range(releaseDateIndex,
+                    filter.getReleasedFrom() == null ? Long.MIN_VALUE : filter.getReleasedFrom().toEpochDay(),
+                    filter.getReleasedTo() == null ? Long.MAX_VALUE : filter.getReleasedTo().toEpochDay());
+        }
+        if (filter.getMinDuration() != null || filter.getMaxDuration() != null) {
+            byDuration = range(durationIndex,
+                    filter.getMinDuration() == null ? Long.MIN_VALUE : filter.getMinDuration(),
+                    filter.getMaxDuration() == null ? Long.MAX_VALUE : filter.getMaxDuration());
+        }
+        IntHashSet filteredIds = new IntHashSet();
+        for (long key : narrowest(byReleaseDate, byDuration)) {
+            int filmId = (int) key;
+            if (filter.matches(snapshotOf(filmId))) {
+                filteredIds.add(filmId);
+            }
+        }
+        return filteredIds.toIntArray();
+    }
+
+    private static NavigableSet<Long> range(NavigableSet<Long> index, long from, long to) {
+        if (from > to || from > Integer.MAX_VALUE || to < Integer.MIN_VALUE) {
+            return Collections.emptyNavigableSet();
+        }
+        return index.subSet(rangeKey(Math.max(from, Integer.MIN_VALUE), 0), true,
+                rangeKey(Math.min(to, Integer.MAX_VALUE), Integer.MAX_VALUE), true);
+    }
+
+    private static NavigableSet<Long> narrowest(NavigableSet<Long> first, NavigableSet<Long> second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        Iterator<Long> firstKeys = first.iterator();
+        Iterator<Long> secondKeys = second.iterator();
+        while (firstKeys.hasNext() && secondKeys.hasNext()) {
+            firstKeys.next();
+            secondKeys.next();
+        }
+        return firstKeys.hasNext() ? second : first;
+    }
+
+    private static long rangeKey(long value, int filmId) {
+        return (value << 32) | filmId;
+    }
+
+    private Film snapshotOf(int filmId) {
+        FilmRecord record = films.get(filmId);
+        return record == null ? null : record.snapshot;
+    }
+
     public void filmIdIsExist(int id) {
-        if ((id <= 0) || (!films.containsKey(id))) {
-            log.error("Передан некорректный id " + id);
+        if (!containsFilm(id)) {
+            log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", id);
             throw new FilmNotFoundException("Некорректный id " + id);
         }
     }
+
+    /**
+     * Лайки меняются на месте под блокировкой фильма, после чего публикуется новый снимок
+     * с IntHashSet.snapshot(): запись стоит O(1), а чтение отдает снимок без копирования и блокировок.
+     */
+    private static final class FilmRecord {
+        private final IntHashSet likes;
+        private volatile FilmSnapshot snapshot;
+
+        private FilmRecord(int id, Film film, IntHashSet likes) {
+            this.likes = likes;
+            this.snapshot = new FilmSnapshot(id, film, likes.snapshot());
+        }
+
+        private IntHashSet likes() {
+            return likes;
+        }
+
+        private void publish() {
+            snapshot = new FilmSnapshot(snapshot.getId(), snapshot, likes.snapshot());
+        }
+    }
+
+    private static final class FilmSnapshot extends Film {
+        private FilmSnapshot(int id, Film film, Set<Integer> likes) {
+            super(id, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), likes);
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+
+        @Override
+        public void setReleaseDate(LocalDate releaseDate) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+
+        @Override
+        public void setDuration(int duration) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+
+        @Override
+        public void setLikes(Set<Integer> likes) {
+            throw new UnsupportedOperationException("Сохраненный фильм нельзя изменять");
+        }
+    }
 }
\ No newline at end of file
@@ -1,125 +1,430 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
+@ConditionalOnExpression("'${filmorate.storage.type:memory}' != 'jdbc'")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int id = 0;
+    private static final int LOCK_STRIPES = 64;
+    private static final int PAGE_CAPACITY = 1024;
+    private static final int MAX_SCANNED_FRIENDS = 500;
+
+    private final Map<Integer, UserRecord> users = new ConcurrentHashMap<>();
+    private final Map<String, Integer> userIdsByEmail = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final AtomicInteger id = new AtomicInteger();
+    private volatile WriteAheadLog journal;
+
+    public InMemoryUserStorage() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
 
     public User create(User user) {
-        checkUser(user);
-        users.forEach((key, value) -> {
-            if (value.getEmail().equals(user.getEmail())) {
-                throw new UserAlreadyExistException("Пользователь с электронной почтой " +
-                        user.getEmail() + " уже зарегистрирован.");
+        StorageValidator.checkUser(user);
+        List<CompletableFuture<Void>> written = new ArrayList<>(1);
+        User createdUser = insert(user, written);
+        WriteAheadLog.awaitAll(written);
+        log.info("Добавлен пользователь {} с id {}", createdUser.getName(), createdUser.getId());
+        log.debug("Добавлен пользователь {}", createdUser);
+        return createdUser;
+    }
+
+    public List<BatchItemResult> createAll(List<User> newUsers) {
+        BatchItemResult[] results = StorageValidator.checkAll(newUsers, StorageValidator::checkUser);
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        int created = 0;
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
             }
-        });
-        user.setId(getNewId());
-        user.setFriends(new LinkedHashSet<>());
-        users.put(user.getId(), User.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .login(user.getLogin())
-                .name(user.getName())
-                .birthday(user.getBirthday())
-                .friends(user.getFriends())
-                .build()
-        );
-        log.info("Добавлен пользователь " + user.getName() + users.size());
-        log.info(user.toString());
-        return user;
+            try {
+                results[index] = BatchItemResult.success(index, insert(newUsers.get(index), written).getId());
+                created++;
+            } catch (UserAlreadyExistException e) {
+                results[index] = BatchItemResult.failure(index, e.getMessage());
+            }
+        }
+        WriteAheadLog.awaitAll(written);
+        log.info("Добавлено пользователей: {} из {}", created, results.length);
+        return Arrays.asList(results);
     }
 
     public User update(User user) {
         if (!users.containsKey(user.getId())) {
-            throw new UserNotFoundException("Пользователь с id " + id + " не найден.");
-        }
-        checkUser(user);
-        users.put(user.getId(), User.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .login(user.getLogin())
-                .name(user.getName())
-                .birthday(user.getBirthday())
-                .friends(user.getFriends())
-                .build()
-        );
-        log.info("Обновлен пользователь " + user.getName());
-        return user;
+            throw new UserNotFoundException("Пользователь с id " + user.getId() + " не найден.");
+        }
+        StorageValidator.checkUser(user);
+        UserRecord record;
+        CompletableFuture<Void> written;
+        Lock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            UserRecord storedRecord = users.get(user.getId());
+            User storedUser = storedRecord.snapshot;
+            if (!storedUser.getEmail().equals(user.getEmail())) {
+                if (userIdsByEmail.putIfAbsent(user.getEmail(), user.getId()) != null) {
+                    throw new UserAlreadyExistException("Пользователь с электронной почтой " +
+                            user.getEmail() + " уже зарегистрирован.");
+                }
+                userIdsByEmail.remove(storedUser.getEmail(), user.getId());
+            }
+            record = new UserRecord(user.getId(), user, storedRecord.friends());
+            users.put(user.getId(), record);
+            written = journal(JournalCodec.userPut(record.snapshot));
+        } finally {
+            lock.unlock();
+        }
+        WriteAheadLog.await(written);
+        log.info("Обновлен пользователь {} с id {}", user.getName(), user.getId());
+        return record.snapshot;
     }
 
     public List<User> getAllUsers() {
-        ArrayList<User> usersList = new ArrayList<>();
-        for (User value : users.values()) {
-            usersList.add(User.builder()
-                    .id(value.getId())
-                    .email(value.getEmail())
-                    .login(value.getLogin())
-                    .name(value.getName())
-                    .birthday(value.getBirthday())
-                    .friends(value.getFriends())
-                    .build());
+        ArrayList<User> usersList = new ArrayList<>(users.size());
+        for (Integer userId : users.keySet()) {
+            usersList.add(snapshotOf(userId));
         }
         return usersList;
     }
 
+    public List<User> getUsers(int afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+        int lastId = getLastId();
+        for (int userId = Math.max(afterId, 0) + 1; userId <= lastId && page.size() < limit; userId++) {
+            if (users.containsKey(userId)) {
+                page.add(snapshotOf(userId));
+            }
+        }
+        return page;
+    }
+
     public User getUserById(int id) {
-        userIdIsExist(id);
-        User user = users.get(id);
-        return User.builder()
-                .id(user.getId())
-                .email(user.getEmail())
-                .login(user.getLogin())
-                .name(user.getName())
-                .birthday(user.getBirthday())
-                .friends(user.getFriends())
-                .build();
+        return findUserById(id).orElseThrow(() -> new UserNotFoundException("Некорректный id " + id));
+    }
+
+    public Optional<User> findUserById(int id) {
+        return Optional.ofNullable(snapshotOf(id));
+    }
+
+    public boolean containsUser(int id) {
+        return users.containsKey(id);
+    }
+
+    public int[] getFriendCounts() {
+        return users.values().stream().mapToInt(record -> record.friends().size()).toArray();
+    }
 
+    public Set<Integer> getFriends(int id) {
+        return getUserById(id).getFriends();
+    }
+
+    public Set<Integer> getCommonFriends(int id, int otherId) {
+        Lock[] pair = lockPair(id, otherId);
+        pair[0].lock();
+        pair[1].lock();
+        try {
+            userIdIsExist(id);
+            userIdIsExist(otherId);
+            return users.get(id).friends().intersect(users.get(otherId).friends());
+        } finally {
+            pair[1].unlock();
+            pair[0].unlock();
+        }
+    }
+
+    public List<Integer> getFriendRecommendations(int id, int limit) {
+        int[] friends;
+        IntHashSet excluded;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            userIdIsExist(id);
+            IntHashSet ownFriends = users.get(id).friends();
+            friends = new int[Math.min(ownFriends.size(), MAX_SCANNED_FRIENDS)];
+            ownFriends.copyTo(friends, 0, friends.length);
+            excluded = new IntHashSet(ownFriends);
+        } finally {
+            lock.unlock();
+        }
+        excluded.add(id);
+        int[] candidates = new int[PAGE_CAPACITY];
+        int count = 0;
+        for (int friendId : friends) {
+            Lock friendLock = lockFor(friendId);
+            friendLock.lock();
+            try {
+                UserRecord friend = users.get(friendId);
+                if (friend == null) {
+                    continue;
+                }
+                int degree = Math.min(friend.friends().size(), MAX_SCANNED_FRIENDS);
+                if (count + degree > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, count + degree));
+                }
+                count += friend.friends().copyTo(candidates, count, degree);
+            } finally {
+                friendLock.unlock();
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        TopK top = new TopK(limit);
+        for (int start = 0; start < count; ) {
+            int candidate = candidates[start];
+            int end = start + 1;
+            while (end < count && candidates[end] == candidate) {
+                end++;
+            }
+            if (!excluded.contains(candidate)) {
+                top.offer(candidate, end - start);
+            }
+            start = end;
+        }
+        List<Integer> recommendations = new ArrayList<>(limit);
+        for (int candidate : top.ids()) {
+            recommendations.add(candidate);
+        }
+        return recommendations;
+    }
+
+    public boolean link(int id, int friendId) {
+        List<CompletableFuture<Void>> written = new ArrayList<>(1);
+        boolean linked = link(id, friendId, written);
+        WriteAheadLog.awaitAll(written);
+        return linked;
+    }
+
+    public boolean[] linkAll(List<Friendship> friendships) {
+        boolean[] linked = new boolean[friendships.size()];
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        for (int index = 0; index < linked.length; index++) {
+            Friendship friendship = friendships.get(index);
+            linked[index] = link(friendship.getUserId(), friendship.getFriendId(), written);
+        }
+        WriteAheadLog.awaitAll(written);
+        return linked;
+    }
+
+    public boolean unlink(int id, int friendId) {
+        CompletableFuture<Void> written;
+        Lock[] pair = lockPair(id, friendId);
+        pair[0].lock();
+        pair[1].lock();
+        try {
+            userIdIsExist(id);
+            userIdIsExist(friendId);
+            UserRecord user = users.get(id);
+            UserRecord friend = users.get(friendId);
+            if (!user.friends().remove(friendId)) {
+                return false;
+            }
+            friend.friends().remove(id);
+            user.publish();
+            friend.publish();
+            written = journal(JournalCodec.edge(JournalCodec.USER_UNLINK, id, friendId));
+        } finally {
+            pair[1].unlock();
+            pair[0].unlock();
+        }
+        WriteAheadLog.await(written);
+        return true;
     }
 
     public int getNewId() {
-        return ++id;
+        return id.incrementAndGet();
     }
 
     public int getLastId() {
-        return id;
+        return id.get();
     }
 
-    private void checkUser(User user) {
-        if (StringUtils.isBlank(user.getEmail())) {
-            throw new IncorrectParameterException("Адрес электронной почты не может быть пустым.");
+    private User insert(User user, List<CompletableFuture<Void>> written) {
+        int userId = userIdsByEmail.compute(user.getEmail(), (email, storedId) -> {
+            if (storedId != null) {
+                throw new UserAlreadyExistException("Пользователь с электронной почтой " +
+                        email + " уже зарегистрирован.");
+            }
+            return getNewId();
+        });
+        if (!(user instanceof UserSnapshot)) {
+            user.setId(userId);
+            user.setFriends(new IntHashSet());
         }
-        if (!user.getEmail().contains("@")) {
-            throw new IncorrectParameterException("Некорректный адрес электронной почты");
+        UserRecord record = new UserRecord(userId, user, new IntHashSet());
+        Lock lock = lockFor(userId);
+        lock.lock();
+        try {
+            users.put(userId, record);
+            journal(JournalCodec.userPut(record.snapshot), written);
+        } finally {
+            lock.unlock();
         }
-        if (StringUtils.isBlank(user.getLogin())) {
-            throw new IncorrectParameterException("Логин пользователя не может быть пустым");
+        return record.snapshot;
+    }
+
+    private boolean link(int id, int friendId, List<CompletableFuture<Void>> written) {
+        Lock[] pair = lockPair(id, friendId);
+        pair[0].lock();
+        pair[1].lock();
+        try {
+            userIdIsExist(id);
+            userIdIsExist(friendId);
+            UserRecord user = users.get(id);
+            UserRecord friend = users.get(friendId);
+            if (!user.friends().add(friendId)) {
+                return false;
+            }
+            friend.friends().add(id);
+            user.publish();
+            friend.publish();
+            journal(JournalCodec.edge(JournalCodec.USER_LINK, id, friendId), written);
+            return true;
+        } finally {
+            pair[1].unlock();
+            pair[0].unlock();
         }
-        if (user.getLogin().contains(" ")) {
-            throw new IncorrectParameterException("Логин пользователя не может содержать пробелы");
+    }
+
+    void attachJournal(WriteAheadLog journal) {
+        this.journal = journal;
+    }
+
+    void restore(User user) {
+        Lock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            UserRecord storedRecord = users.get(user.getId());
+            IntHashSet friends = new IntHashSet();
+            if (storedRecord != null) {
+                userIdsByEmail.remove(storedRecord.snapshot.getEmail(), user.getId());
+                friends = storedRecord.friends();
+            }
+            userIdsByEmail.put(user.getEmail(), user.getId());
+            users.put(user.getId(), new UserRecord(user.getId(), user, friends));
+            id.accumulateAndGet(user.getId(), Math::max);
+        } finally {
+            lock.unlock();
         }
-        if (StringUtils.isBlank(user.getName())) {
-            user.setName(user.getLogin());
+    }
+
+    void quiesce(Runnable action) {
+        for (Lock lock : locks) {
+            lock.lock();
         }
-        if (user.getBirthday() != null && !user.getBirthday().toString().isBlank() &&
-                user.getBirthday().isAfter(LocalDate.now())) {
-            throw new IncorrectParameterException("Дата рождения не может быть в будущем");
+        try {
+            action.run();
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
         }
     }
 
+    private CompletableFuture<Void> journal(byte[] record) {
+        WriteAheadLog journal = this.journal;
+        return journal == null ? null : journal.append(record);
+    }
+
+    private void journal(byte[] record, List<CompletableFuture<Void>> written) {
+        CompletableFuture<Void> future = journal(record);
+        if (future != null) {
+            written.add(future);
+        }
+    }
+
+    private Lock lockFor(int userId) {
+        return locks[userId & (LOCK_STRIPES - 1)];
+    }
+
+    private User snapshotOf(int userId) {
+        UserRecord record = users.get(userId);
+        return record == null ? null : record.snapshot;
+    }
+
+    private Lock[] lockPair(int firstId, int secondId) {
+        int first = firstId & (LOCK_STRIPES - 1);
+        int second = secondId & (LOCK_STRIPES - 1);
+        return new Lock[]{locks[Math.min(first, second)], locks[Math.max(first, second)]};
+    }
+
     public void userIdIsExist(int id) {
-        if ((id <= 0) || (!users.containsKey(id))) {
-            log.error("Передан некорректный id " + id);
+        if (!containsUser(id)) {
+            log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", id);
             throw new UserNotFoundException("Некорректный id " + id);
         }
     }
+
+    /**
+     * Друзья меняются на месте под блокировкой пользователя с публикацией снимка, см. InMemoryFilmStorage.
+     */
+    private static final class UserRecord {
+        private final IntHashSet friends;
+        private volatile UserSnapshot snapshot;
+
+        private UserRecord(int id, User user, IntHashSet friends) {
+            this.friends = friends;
+            this.snapshot = new UserSnapshot(id, user, friends.snapshot());
+        }
+
+        private IntHashSet friends() {
+            return friends;
+        }
+
+        private void publish() {
+            snapshot = new UserSnapshot(snapshot.getId(), snapshot, friends.snapshot());
+        }
+    }
+
+    private static final class UserSnapshot extends User {
+        private UserSnapshot(int id, User user, Set<Integer> friends) {
+            super(id, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), friends);
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+
+        @Override
+        public void setEmail(String email) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+
+        @Override
+        public void setLogin(String login) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+
+        @Override
+        public void setBirthday(LocalDate birthday) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+
+        @Override
+        public void setFriends(Set<Integer> friends) {
+            throw new UnsupportedOperationException("Сохраненного пользователя нельзя изменять");
+        }
+    }
 }
\ No newline at end of file
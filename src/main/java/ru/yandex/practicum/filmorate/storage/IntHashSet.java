@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Множество int без упаковки в Integer. Значения дописываются в массив values в порядке добавления,
+ * как у LinkedHashSet, а хеш-таблица с линейным пробированием хранит номера записей в нем.
+ * Удаление только помечает запись номером удаления в removedAt, место освобождается при перестройке.
+ * Поэтому snapshot() отдает неизменяемый снимок за O(1): он видит префикс values и удаления,
+ * сделанные до него, а дальнейшие изменения пишут только за префикс или в новые массивы.
+ * Не потокобезопасно, синхронизация остается на стороне хранилища; снимки можно читать без блокировок.
+ */
+public class IntHashSet extends AbstractSet<Integer> {
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] table;
+    private int[] values;
+    private int[] removedAt;
+    private int entries;
+    private int size;
+    private int removals;
+    private int mask;
+    private int maxFill;
+
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public IntHashSet(Collection<Integer> values) {
+        this(values.size());
+        for (Integer value : values) {
+            add(value.intValue());
+        }
+    }
+
+    public IntHashSet(IntHashSet other) {
+        this(other.size);
+        other.forEachInt(this::add);
+    }
+
+    public boolean add(int value) {
+        int slot = find(value);
+        if (slot >= 0) {
+            return false;
+        }
+        if (entries == values.length) {
+            rebuild(size < maxFill ? table.length : grownCapacity());
+            slot = find(value);
+        }
+        values[entries] = value;
+        table[-1 - slot] = ++entries;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return find(value) >= 0;
+    }
+
+    public boolean remove(int value) {
+        int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        int entry = table[slot] - 1;
+        shiftKeys(slot);
+        if (removedAt == null) {
+            removedAt = new int[values.length];
+        }
+        removedAt[entry] = ++removals;
+        if (--size < entries >>> 1 && entries > MIN_CAPACITY) {
+            rebuild(table.length);
+        }
+        return true;
+    }
+
+    /**
+     * Неизменяемый снимок текущего содержимого; значения не копируются.
+     */
+    public Set<Integer> snapshot() {
+        return new Snapshot(values, removedAt, entries, size, removals);
+    }
+
+    public IntHashSet intersect(IntHashSet other) {
+        IntHashSet smaller = size <= other.size ? this : other;
+        IntHashSet larger = smaller == this ? other : this;
+        IntHashSet result = new IntHashSet(Math.min(smaller.size, 16));
+        smaller.forEachInt(value -> {
+            if (larger.contains(value)) {
+                result.add(value);
+            }
+        });
+        return result;
+    }
+
+    public void forEachInt(IntConsumer action) {
+        for (int entry = 0; entry < entries; entry++) {
+            if (isLive(entry)) {
+                action.accept(values[entry]);
+            }
+        }
+    }
+
+    public int copyTo(int[] target, int offset, int limit) {
+        int copied = 0;
+        for (int entry = 0; entry < entries && copied < limit; entry++) {
+            if (isLive(entry)) {
+                target[offset + copied++] = values[entry];
+            }
+        }
+        return copied;
+    }
+
+    public int[] toIntArray() {
+        int[] live = new int[size];
+        copyTo(live, 0, size);
+        return live;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public void clear() {
+        allocate(table.length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new EntryIterator(values, removedAt, entries, Integer.MAX_VALUE);
+    }
+
+    private boolean isLive(int entry) {
+        return removedAt == null || removedAt[entry] == 0;
+    }
+
+    private int find(int value) {
+        int slot = slot(value);
+        while (table[slot] != FREE) {
+            if (values[table[slot] - 1] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1 - slot;
+    }
+
+    private void shiftKeys(int slot) {
+        int last = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int entry = table[slot];
+            if (entry == FREE) {
+                table[last] = FREE;
+                return;
+            }
+            int home = slot(values[entry - 1]);
+            if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                table[last] = entry;
+                last = slot;
+            }
+        }
+    }
+
+    private int grownCapacity() {
+        if (table.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Превышен максимальный размер множества");
+        }
+        return table.length << 1;
+    }
+
+    private void rebuild(int capacity) {
+        int[] oldValues = values;
+        int[] oldRemovedAt = removedAt;
+        int oldEntries = entries;
+        allocate(capacity);
+        for (int entry = 0; entry < oldEntries; entry++) {
+            if (oldRemovedAt == null || oldRemovedAt[entry] == 0) {
+                int value = oldValues[entry];
+                values[entries] = value;
+                table[-1 - find(value)] = ++entries;
+            }
+        }
+        size = entries;
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        maxFill = (int) (capacity * LOAD_FACTOR);
+        values = new int[maxFill];
+        removedAt = null;
+        entries = 0;
+        size = 0;
+        removals = 0;
+    }
+
+    private int slot(int value) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        if (expectedSize >= (int) (MAX_CAPACITY * LOAD_FACTOR)) {
+            throw new IllegalArgumentException("Слишком большой размер множества: " + expectedSize);
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static final class EntryIterator implements Iterator<Integer> {
+        private final int[] values;
+        private final int[] removedAt;
+        private final int entries;
+        private final int version;
+        private int entry = -1;
+
+        private EntryIterator(int[] values, int[] removedAt, int entries, int version) {
+            this.values = values;
+            this.removedAt = removedAt;
+            this.entries = entries;
+            this.version = version;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return entry < entries;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int value = values[entry];
+            advance();
+            return value;
+        }
+
+        private void advance() {
+            entry++;
+            while (entry < entries && removedAt != null && removedAt[entry] != 0 && removedAt[entry] <= version) {
+                entry++;
+            }
+        }
+    }
+
+    /**
+     * Снимок видит записи до entries, кроме удаленных с номером не больше version.
+     * Проверка вхождения строит индекс при первом вызове.
+     */
+    private static final class Snapshot extends AbstractSet<Integer> {
+        private final int[] values;
+        private final int[] removedAt;
+        private final int entries;
+        private final int size;
+        private final int version;
+        private volatile IntHashSet index;
+
+        private Snapshot(int[] values, int[] removedAt, int entries, int size, int version) {
+            this.values = values;
+            this.removedAt = removedAt;
+            this.entries = entries;
+            this.size = size;
+            this.version = version;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            IntHashSet index = this.index;
+            if (index == null) {
+                index = new IntHashSet(this);
+                this.index = index;
+            }
+            return index.contains(value);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new EntryIterator(values, removedAt, entries, version);
+        }
+    }
+}
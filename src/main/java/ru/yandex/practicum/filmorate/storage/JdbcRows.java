@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+final class JdbcRows {
+    static final int BATCH_SIZE = 500;
+
+    private JdbcRows() {
+    }
+
+    static <T> int[] insertAll(JdbcTemplate jdbcTemplate, String sql, String keyColumn, List<T> items,
+                               ParameterizedPreparedStatementSetter<T> setter) {
+        int[] ids = new int[items.size()];
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{keyColumn})) {
+                for (int from = 0; from < items.size(); from += BATCH_SIZE) {
+                    int to = Math.min(from + BATCH_SIZE, items.size());
+                    for (int index = from; index < to; index++) {
+                        setter.setValues(statement, items.get(index));
+                        statement.addBatch();
+                    }
+                    int[] counts = statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (int index = from; index < to; index++) {
+                            if (counts[index - from] > 0 && keys.next()) {
+                                ids[index] = keys.getInt(1);
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        return ids;
+    }
+
+    static boolean[] applied(int[][] counts, int size) {
+        boolean[] applied = new boolean[size];
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                applied[index++] = count > 0;
+            }
+        }
+        return applied;
+    }
+
+    static Set<Integer> toIds(Array array) throws SQLException {
+        Set<Integer> ids = new LinkedHashSet<>();
+        if (array == null) {
+            return ids;
+        }
+        try {
+            for (Object id : (Object[]) array.getArray()) {
+                ids.add(((Number) id).intValue());
+            }
+        } finally {
+            array.free();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Двоичный формат записей журнала и снимков хранилищ.
+ */
+final class JournalCodec {
+    static final byte FILM_PUT = 1;
+    static final byte FILM_LIKE = 2;
+    static final byte FILM_UNLIKE = 3;
+    static final byte USER_PUT = 4;
+    static final byte USER_LINK = 5;
+    static final byte USER_UNLINK = 6;
+
+    interface Handler {
+        void filmPut(Film film);
+
+        void filmLike(int filmId, int userId);
+
+        void filmUnlike(int filmId, int userId);
+
+        void userPut(User user);
+
+        void userLink(int id, int friendId);
+
+        void userUnlink(int id, int friendId);
+    }
+
+    private JournalCodec() {
+    }
+
+    static byte[] filmPut(Film film) {
+        Set<Integer> likes = film.getLikes();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + likes.size() * Integer.BYTES);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FILM_PUT);
+            out.writeInt(film.getId());
+            writeString(out, film.getName());
+            writeString(out, film.getDescription());
+            writeDate(out, film.getReleaseDate());
+            out.writeInt(film.getDuration());
+            out.writeInt(likes.size());
+            for (Integer userId : likes) {
+                out.writeInt(userId);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] userPut(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(USER_PUT);
+            out.writeInt(user.getId());
+            writeString(out, user.getEmail());
+            writeString(out, user.getLogin());
+            writeString(out, user.getName());
+            writeDate(out, user.getBirthday());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] edge(byte type, int id, int otherId) {
+        byte[] record = new byte[1 + 2 * Integer.BYTES];
+        record[0] = type;
+        writeInt(record, 1, id);
+        writeInt(record, 1 + Integer.BYTES, otherId);
+        return record;
+    }
+
+    static void decode(byte[] record, Handler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        switch (type) {
+            case FILM_PUT:
+                Film film = Film.builder()
+                        .id(in.readInt())
+                        .name(readString(in))
+                        .description(readString(in))
+                        .releaseDate(readDate(in))
+                        .duration(in.readInt())
+                        .build();
+                int likesCount = in.readInt();
+                IntHashSet likes = new IntHashSet(likesCount);
+                for (int i = 0; i < likesCount; i++) {
+                    likes.add(in.readInt());
+                }
+                film.setLikes(likes);
+                handler.filmPut(film);
+                break;
+            case USER_PUT:
+                handler.userPut(User.builder()
+                        .id(in.readInt())
+                        .email(readString(in))
+                        .login(readString(in))
+                        .name(readString(in))
+                        .birthday(readDate(in))
+                        .build());
+                break;
+            case FILM_LIKE:
+                handler.filmLike(in.readInt(), in.readInt());
+                break;
+            case FILM_UNLIKE:
+                handler.filmUnlike(in.readInt(), in.readInt());
+                break;
+            case USER_LINK:
+                handler.userLink(in.readInt(), in.readInt());
+                break;
+            case USER_UNLINK:
+                handler.userUnlink(in.readInt(), in.readInt());
+                break;
+            default:
+                throw new IOException("Неизвестный тип записи журнала " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Файл, отображенный в память сегментами по 1 ГБ, поэтому его размер не ограничен 2 ГБ одного буфера.
+ * Растет удвоением, публикуя новый массив сегментов; старые буферы остаются отображенными на тот же файл,
+ * поэтому чтение и запись уже выделенных позиций могут идти одновременно с ростом. Сам рост нужно синхронизировать.
+ */
+final class MappedFile implements Closeable {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long MIN_CAPACITY = 1 << 16;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long capacity;
+
+    MappedFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        remap(Math.max(channel.size(), MIN_CAPACITY));
+    }
+
+    void ensureCapacity(long required) {
+        if (required <= capacity) {
+            return;
+        }
+        long newCapacity = capacity;
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        try {
+            remap(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    void putInt(long position, int value) {
+        segments[(int) (position >>> SEGMENT_BITS)].putInt((int) (position & (SEGMENT_SIZE - 1)), value);
+    }
+
+    long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    void putLong(long position, long value) {
+        segments[(int) (position >>> SEGMENT_BITS)].putLong((int) (position & (SEGMENT_SIZE - 1)), value);
+    }
+
+    void get(long position, byte[] target) {
+        for (int done = 0; done < target.length; ) {
+            MappedByteBuffer segment = segments[(int) ((position + done) >>> SEGMENT_BITS)];
+            int offset = (int) ((position + done) & (SEGMENT_SIZE - 1));
+            int length = Math.min(target.length - done, segment.capacity() - offset);
+            segment.duplicate().position(offset).get(target, done, length);
+            done += length;
+        }
+    }
+
+    void put(long position, byte[] source) {
+        for (int done = 0; done < source.length; ) {
+            MappedByteBuffer segment = segments[(int) ((position + done) >>> SEGMENT_BITS)];
+            int offset = (int) ((position + done) & (SEGMENT_SIZE - 1));
+            int length = Math.min(source.length - done, segment.capacity() - offset);
+            segment.duplicate().position(offset).put(source, done, length);
+            done += length;
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void remap(long newCapacity) throws IOException {
+        int count = (int) ((newCapacity + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        int kept = segments.length > 0 && segments[segments.length - 1].capacity() < SEGMENT_SIZE
+                ? segments.length - 1 : segments.length;
+        MappedByteBuffer[] remapped = Arrays.copyOf(segments, count);
+        for (int index = kept; index < count; index++) {
+            long start = (long) index << SEGMENT_BITS;
+            remapped[index] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                    Math.min(SEGMENT_SIZE, newCapacity - start));
+        }
+        segments = remapped;
+        capacity = newCapacity;
+    }
+}
@@ -0,0 +1,835 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище фильмов в файлах, отображенных в память, вне кучи. Фиксированные поля лежат колонками,
+ * где позиция записи определяется id: дата релиза в днях от эпохи, продолжительность, число лайков,
+ * ссылка на текст и ссылка на блок лайков. Название и описание дописываются в text.dat, лайки фильма хранятся
+ * отсортированным блоком int в likes.dat и при переполнении переносятся в блок вдвое больше.
+ * Уникальность названий проверяет хеш-таблица с открытой адресацией в names.idx.
+ * Объекты Film собираются только при выдаче наружу. В куче, как и в хранилище в памяти, держатся только индексы:
+ * рейтинг по числу лайков, поисковый индекс и фильмы каждого пользователя; при старте они строятся по файлам.
+ * Лайки меняются под блокировкой полосы фильма и общей блокировкой на чтение, а создание и изменение фильмов
+ * берут общую блокировку на запись. Файлы сбрасываются на диск раз в force-interval и при закрытии.
+ * Записи видны после записи последнего id в meta.bin; место от замененных текстов и блоков лайков не освобождается.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "mapped")
+@Slf4j
+public class MappedFilmStorage implements FilmStorage, Closeable {
+    private static final int MAGIC = 0x464D4331;
+    private static final long META_MAGIC = 0;
+    private static final long META_LAST_ID = 4;
+    private static final long META_NAME_SLOTS = 8;
+    private static final long META_NAME_USED = 12;
+    private static final long META_TEXT_END = 16;
+    private static final long META_LIKES_END = 24;
+    private static final int REFERENCE_SIZE = 16;
+    private static final int MIN_NAME_SLOTS = 1024;
+    private static final int REMOVED = -1;
+    private static final int MIN_LIKES_CAPACITY = 4;
+    private static final int PAGE_CAPACITY = 1024;
+    private static final int MAX_SCANNED_LIKES = 1000;
+    private static final int MAX_NEIGHBORS = 100;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    private final MappedFile meta;
+    private final MappedFile releaseDates;
+    private final MappedFile durations;
+    private final MappedFile likeCounts;
+    private final MappedFile textReferences;
+    private final MappedFile likeReferences;
+    private final MappedFile texts;
+    private final MappedFile likes;
+    private final MappedFile names;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final Lock[] userLocks = new Lock[LOCK_STRIPES];
+    private final NavigableSet<Long> rating = new TreeSet<>();
+    private final Map<Integer, IntHashSet> filmsByUser = new ConcurrentHashMap<>();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final ScheduledExecutorService scheduler;
+
+    public MappedFilmStorage(Path directory) throws IOException {
+        this(directory, Duration.ZERO);
+    }
+
+    @Autowired
+    public MappedFilmStorage(@Value("${filmorate.storage.mapped.directory:mapped}") Path directory,
+                             @Value("${filmorate.storage.mapped.force-interval:1s}") Duration forceInterval)
+            throws IOException {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            userLocks[i] = new ReentrantLock();
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        meta = new MappedFile(directory.resolve("meta.bin"));
+        releaseDates = new MappedFile(directory.resolve("release_date.col"));
+        durations = new MappedFile(directory.resolve("duration.col"));
+        likeCounts = new MappedFile(directory.resolve("like_count.col"));
+        textReferences = new MappedFile(directory.resolve("text.col"));
+        likeReferences = new MappedFile(directory.resolve("likes.col"));
+        texts = new MappedFile(directory.resolve("text.dat"));
+        likes = new MappedFile(directory.resolve("likes.dat"));
+        names = new MappedFile(directory.resolve("names.idx"));
+        if (meta.getInt(META_MAGIC) != MAGIC) {
+            meta.putInt(META_NAME_SLOTS, MIN_NAME_SLOTS);
+            meta.putInt(META_MAGIC, MAGIC);
+        }
+        long started = System.nanoTime();
+        for (int id = 1, lastId = lastId(); id <= lastId; id++) {
+            String[] text = text(id);
+            searchIndex.put(Film.builder().id(id).name(text[0]).description(text[1]).build());
+            rating.add(ratingKey(id, likeCount(id)));
+            for (int userId : likeArray(id, Integer.MAX_VALUE)) {
+                indexLike(id, userId);
+            }
+        }
+        if (!forceInterval.isZero() && !forceInterval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mapped-storage-force");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = forceInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::forceQuietly, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+        log.info("Открыто хранилище фильмов {}: {} фильмов, индексы построены за {} мс", directory, lastId(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public List<Film> getAllFilms() {
+        return getFilms(0, Integer.MAX_VALUE);
+    }
+
+    public List<Film> getFilms(int afterId, int limit) {
+        return getFilms(new FilmFilter(), afterId, limit);
+    }
+
+    public List<Film> getFilms(FilmFilter filter, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int lastId = lastId();
+            List<Film> page = new ArrayList<>(Math.min(limit, PAGE_CAPACITY));
+            for (int id = Math.max(afterId, 0) + 1; id <= lastId && page.size() < limit; id++) {
+                if (matches(id, filter)) {
+                    page.add(film(id));
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Film create(Film film) {
+        StorageValidator.checkFilm(film);
+        Film createdFilm;
+        lock.writeLock().lock();
+        try {
+            createdFilm = insert(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return createdFilm;
+    }
+
+    public List<BatchItemResult> createAll(List<Film> newFilms) {
+        BatchItemResult[] results = StorageValidator.checkAll(newFilms, StorageValidator::checkFilm);
+        int created = 0;
+        lock.writeLock().lock();
+        try {
+            for (int index = 0; index < results.length; index++) {
+                if (results[index] != null) {
+                    continue;
+                }
+                try {
+                    results[index] = BatchItemResult.success(index, insert(newFilms.get(index)).getId());
+                    created++;
+                } catch (FilmAlreadyExistException e) {
+                    results[index] = BatchItemResult.failure(index, e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Добавлено фильмов: {} из {}", created, results.length);
+        return Arrays.asList(results);
+    }
+
+    public Film update(Film film) {
+        StorageValidator.checkFilm(film);
+        Film updatedFilm;
+        lock.writeLock().lock();
+        try {
+            filmIdIsExist(film.getId());
+            String storedName = name(film.getId());
+            boolean renamed = !storedName.equals(film.getName());
+            if (renamed) {
+                if (findByName(film.getName()) != 0) {
+                    throw new FilmAlreadyExistException("Фильм с названием " + film.getName() + " уже существует.");
+                }
+                reserveNameSlot();
+            }
+            write(film.getId(), film);
+            if (renamed) {
+                removeName(storedName, film.getId());
+                addName(film.getName(), film.getId());
+            }
+            updatedFilm = film(film.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Фильм с названием {} добавлен", film.getName());
+        return updatedFilm;
+    }
+
+    public Film getFilmById(int id) {
+        return findFilmById(id).orElseThrow(() -> new FilmNotFoundException("Некорректный id " + id));
+    }
+
+    public Optional<Film> findFilmById(int id) {
+        lock.readLock().lock();
+        try {
+            return id > 0 && id <= lastId() ? Optional.of(film(id)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsFilm(int id) {
+        return id > 0 && id <= getLastId();
+    }
+
+    public List<Film> getPopularFilms(int count) {
+        return getPopularFilms(new FilmFilter(), count);
+    }
+
+    public List<Film> getPopularFilms(FilmFilter filter, int count) {
+        lock.readLock().lock();
+        try {
+            int[] popularIds = new int[Math.min(count, lastId())];
+            int found = 0;
+            synchronized (rating) {
+                Iterator<Long> keys = rating.descendingIterator();
+                while (found < popularIds.length && keys.hasNext()) {
+                    int id = Integer.MAX_VALUE - (int) (long) keys.next();
+                    if (matches(id, filter)) {
+                        popularIds[found++] = id;
+                    }
+                }
+            }
+            return films(Arrays.copyOf(popularIds, found));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        int[] foundIds = searchIndex.search(query, limit);
+        lock.readLock().lock();
+        try {
+            return films(foundIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLastId() {
+        lock.readLock().lock();
+        try {
+            return lastId();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Integer> getLikes(int id) {
+        lock.readLock().lock();
+        try {
+            filmIdIsExist(id);
+            return likeSet(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasLike(int id, int userId) {
+        lock.readLock().lock();
+        Lock filmLock = lockFor(id);
+        filmLock.lock();
+        try {
+            filmIdIsExist(id);
+            return findLike(id, userId) >= 0;
+        } finally {
+            filmLock.unlock();
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getRecommendedFilms(int userId, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] ownFilms = likedFilms(userId);
+            IntHashSet excluded = new IntHashSet(ownFilms.length);
+            for (int filmId : ownFilms) {
+                excluded.add(filmId);
+            }
+            int[] neighborLikes = new int[0];
+            for (int filmId : ownFilms) {
+                int[] likers = likers(filmId);
+                int count = neighborLikes.length;
+                neighborLikes = Arrays.copyOf(neighborLikes, count + likers.length);
+                System.arraycopy(likers, 0, neighborLikes, count, likers.length);
+            }
+            Arrays.sort(neighborLikes);
+            TopK topNeighbors = new TopK(MAX_NEIGHBORS);
+            for (int start = 0; start < neighborLikes.length; ) {
+                int end = start + 1;
+                while (end < neighborLikes.length && neighborLikes[end] == neighborLikes[start]) {
+                    end++;
+                }
+                if (neighborLikes[start] != userId) {
+                    topNeighbors.offer(neighborLikes[start], end - start);
+                }
+                start = end;
+            }
+            int[] neighbors = topNeighbors.ids();
+            int[] overlaps = topNeighbors.scores();
+            long[] candidates = new long[0];
+            for (int index = 0; index < neighbors.length; index++) {
+                long[] weighted = weightedFilms(neighbors[index], overlaps[index], excluded);
+                int count = candidates.length;
+                candidates = Arrays.copyOf(candidates, count + weighted.length);
+                System.arraycopy(weighted, 0, candidates, count, weighted.length);
+            }
+            Arrays.sort(candidates);
+            TopK topFilms = new TopK(limit);
+            for (int start = 0; start < candidates.length; ) {
+                int filmId = (int) (candidates[start] >>> 32);
+                int score = 0;
+                int end = start;
+                while (end < candidates.length && (int) (candidates[end] >>> 32) == filmId) {
+                    score += (int) candidates[end++];
+                }
+                topFilms.offer(filmId, score);
+                start = end;
+            }
+            List<Integer> recommendations = new ArrayList<>(limit);
+            for (int filmId : topFilms.ids()) {
+                recommendations.add(filmId);
+            }
+            return recommendations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getLikeCounts() {
+        lock.readLock().lock();
+        try {
+            int[] counts = new int[lastId()];
+            for (int index = 0; index < counts.length; index++) {
+                counts[index] = likeCount(index + 1);
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void forEachLikeSince(Instant since, LikeHandler handler) {
+        // Время лайков в колонках не хранится, поэтому после перезапуска тренды набираются заново.
+    }
+
+    public boolean addLike(int id, int userId) {
+        lock.readLock().lock();
+        try {
+            filmIdIsExist(id);
+            return addLikeLocked(id, userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean[] addLikes(List<Like> newLikes) {
+        boolean[] added = new boolean[newLikes.size()];
+        lock.readLock().lock();
+        try {
+            int lastId = lastId();
+            for (int index = 0; index < added.length; index++) {
+                Like like = newLikes.get(index);
+                added[index] = like.getFilmId() > 0 && like.getFilmId() <= lastId
+                        && addLikeLocked(like.getFilmId(), like.getUserId());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return added;
+    }
+
+    public boolean removeLike(int id, int userId) {
+        lock.readLock().lock();
+        Lock filmLock = lockFor(id);
+        filmLock.lock();
+        try {
+            filmIdIsExist(id);
+            int index = findLike(id, userId);
+            if (index < 0) {
+                return false;
+            }
+            long offset = likeReference(id);
+            int count = likeCount(id);
+            for (int position = index; position < count - 1; position++) {
+                likes.putInt(offset + (long) position * Integer.BYTES,
+                        likes.getInt(offset + (long) (position + 1) * Integer.BYTES));
+            }
+            likeCounts.putInt(column(id), count - 1);
+            updateRating(id, count, count - 1);
+            unindexLike(id, userId);
+            return true;
+        } finally {
+            filmLock.unlock();
+            lock.readLock().unlock();
+        }
+    }
+
+    public void filmIdIsExist(int id) {
+        if (!containsFilm(id)) {
+            log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", id);
+            throw new FilmNotFoundException("Некорректный id " + id);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        lock.writeLock().lock();
+        try {
+            for (MappedFile file : List.of(releaseDates, durations, likeCounts, textReferences, likeReferences,
+                    texts, likes, names, meta)) {
+                file.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Хранилище фильмов {} закрыто", directory);
+    }
+
+    private void forceQuietly() {
+        lock.readLock().lock();
+        try {
+            for (MappedFile file : List.of(releaseDates, durations, likeCounts, textReferences, likeReferences,
+                    texts, likes, names, meta)) {
+                file.force();
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить хранилище фильмов {} на диск", directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Film insert(Film film) {
+        if (findByName(film.getName()) != 0) {
+            throw new FilmAlreadyExistException("Фильм с названием " + film.getName() + " уже существует.");
+        }
+        reserveNameSlot();
+        int id = lastId() + 1;
+        film.setId(id);
+        for (MappedFile column : List.of(releaseDates, durations, likeCounts)) {
+            column.ensureCapacity((long) id * Integer.BYTES);
+        }
+        textReferences.ensureCapacity((long) id * REFERENCE_SIZE);
+        likeReferences.ensureCapacity((long) id * REFERENCE_SIZE);
+        likeReferences.putLong(reference(id), 0);
+        likeReferences.putInt(reference(id) + Long.BYTES, 0);
+        likeCounts.putInt(column(id), 0);
+        write(id, film);
+        addName(film.getName(), id);
+        meta.putInt(META_LAST_ID, id);
+        return film(id);
+    }
+
+    private void write(int id, Film film) {
+        byte[] name = film.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = film.getDescription().getBytes(StandardCharsets.UTF_8);
+        long textEnd = meta.getLong(META_TEXT_END);
+        texts.ensureCapacity(textEnd + name.length + description.length);
+        texts.put(textEnd, name);
+        texts.put(textEnd + name.length, description);
+        meta.putLong(META_TEXT_END, textEnd + name.length + description.length);
+        textReferences.putLong(reference(id), textEnd);
+        textReferences.putInt(reference(id) + Long.BYTES, name.length);
+        textReferences.putInt(reference(id) + Long.BYTES + Integer.BYTES, description.length);
+        releaseDates.putInt(column(id), (int) film.getReleaseDate().toEpochDay());
+        durations.putInt(column(id), film.getDuration());
+        int[] storedLikes = likeArray(id, Integer.MAX_VALUE);
+        int[] newLikes = film.getLikes().stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        writeLikes(id, newLikes);
+        for (int userId : storedLikes) {
+            unindexLike(id, userId);
+        }
+        for (int userId : newLikes) {
+            indexLike(id, userId);
+        }
+        updateRating(id, storedLikes.length, newLikes.length);
+        searchIndex.put(film);
+    }
+
+    private Film film(int id) {
+        String[] text = text(id);
+        return Film.builder()
+                .id(id)
+                .name(text[0])
+                .description(text[1])
+                .releaseDate(LocalDate.ofEpochDay(releaseDates.getInt(column(id))))
+                .duration(durations.getInt(column(id)))
+                .likes(likeSet(id))
+                .build();
+    }
+
+    private List<Film> films(int[] ids) {
+        List<Film> films = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            films.add(film(id));
+        }
+        return films;
+    }
+
+    private boolean matches(int id, FilmFilter filter) {
+        if (filter.getReleasedFrom() != null || filter.getReleasedTo() != null) {
+            int releaseDate = releaseDates.getInt(column(id));
+            if (filter.getReleasedFrom() != null && releaseDate < filter.getReleasedFrom().toEpochDay()
+                    || filter.getReleasedTo() != null && releaseDate > filter.getReleasedTo().toEpochDay()) {
+                return false;
+            }
+        }
+        int duration = durations.getInt(column(id));
+        return (filter.getMinDuration() == null || duration >= filter.getMinDuration())
+                && (filter.getMaxDuration() == null || duration <= filter.getMaxDuration());
+    }
+
+    private String[] text(int id) {
+        long offset = textReferences.getLong(reference(id));
+        byte[] name = new byte[textReferences.getInt(reference(id) + Long.BYTES)];
+        byte[] description = new byte[textReferences.getInt(reference(id) + Long.BYTES + Integer.BYTES)];
+        texts.get(offset, name);
+        texts.get(offset + name.length, description);
+        return new String[]{new String(name, StandardCharsets.UTF_8), new String(description, StandardCharsets.UTF_8)};
+    }
+
+    private String name(int id) {
+        byte[] name = new byte[textReferences.getInt(reference(id) + Long.BYTES)];
+        texts.get(textReferences.getLong(reference(id)), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private int lastId() {
+        return meta.getInt(META_LAST_ID);
+    }
+
+    private int likeCount(int id) {
+        return likeCounts.getInt(column(id));
+    }
+
+    private long likeReference(int id) {
+        return likeReferences.getLong(reference(id));
+    }
+
+    private Set<Integer> likeSet(int id) {
+        Set<Integer> likeSet = new LinkedHashSet<>();
+        for (int userId : likeArray(id, Integer.MAX_VALUE)) {
+            likeSet.add(userId);
+        }
+        return likeSet;
+    }
+
+    private int[] likeArray(int id, int limit) {
+        Lock filmLock = lockFor(id);
+        filmLock.lock();
+        try {
+            int count = Math.min(likeCount(id), limit);
+            byte[] bytes = new byte[count * Integer.BYTES];
+            likes.get(likeReference(id), bytes);
+            int[] userIds = new int[count];
+            ByteBuffer.wrap(bytes).asIntBuffer().get(userIds);
+            return userIds;
+        } finally {
+            filmLock.unlock();
+        }
+    }
+
+    private int findLike(int id, int userId) {
+        long offset = likeReference(id);
+        int low = 0;
+        int high = likeCount(id) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = likes.getInt(offset + (long) middle * Integer.BYTES);
+            if (middleId < userId) {
+                low = middle + 1;
+            } else if (middleId > userId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private boolean addLikeLocked(int id, int userId) {
+        Lock filmLock = lockFor(id);
+        filmLock.lock();
+        try {
+            if (!insertLike(id, userId)) {
+                return false;
+            }
+            int count = likeCount(id);
+            updateRating(id, count - 1, count);
+            indexLike(id, userId);
+            return true;
+        } finally {
+            filmLock.unlock();
+        }
+    }
+
+    private boolean insertLike(int id, int userId) {
+        int index = findLike(id, userId);
+        if (index >= 0) {
+            return false;
+        }
+        index = -(index + 1);
+        int count = likeCount(id);
+        if (count == likeReferences.getInt(reference(id) + Long.BYTES)) {
+            int[] userIds = likeArray(id, count);
+            allocateLikes(id, Math.max(MIN_LIKES_CAPACITY, count * 2));
+            putLikes(likeReference(id), userIds);
+        }
+        long offset = likeReference(id);
+        for (int position = count; position > index; position--) {
+            likes.putInt(offset + (long) position * Integer.BYTES,
+                    likes.getInt(offset + (long) (position - 1) * Integer.BYTES));
+        }
+        likes.putInt(offset + (long) index * Integer.BYTES, userId);
+        likeCounts.putInt(column(id), count + 1);
+        return true;
+    }
+
+    private void writeLikes(int id, int[] userIds) {
+        if (userIds.length > likeReferences.getInt(reference(id) + Long.BYTES)) {
+            allocateLikes(id, Math.max(MIN_LIKES_CAPACITY, Integer.highestOneBit(userIds.length) * 2));
+        }
+        putLikes(likeReference(id), userIds);
+        likeCounts.putInt(column(id), userIds.length);
+    }
+
+    private void allocateLikes(int id, int capacity) {
+        long likesEnd;
+        synchronized (likes) {
+            likesEnd = meta.getLong(META_LIKES_END);
+            likes.ensureCapacity(likesEnd + (long) capacity * Integer.BYTES);
+            meta.putLong(META_LIKES_END, likesEnd + (long) capacity * Integer.BYTES);
+        }
+        likeReferences.putLong(reference(id), likesEnd);
+        likeReferences.putInt(reference(id) + Long.BYTES, capacity);
+    }
+
+    private void putLikes(long offset, int[] userIds) {
+        ByteBuffer bytes = ByteBuffer.allocate(userIds.length * Integer.BYTES);
+        bytes.asIntBuffer().put(userIds);
+        likes.put(offset, bytes.array());
+    }
+
+    private int[] likedFilms(int userId) {
+        Lock userLock = userLockFor(userId);
+        userLock.lock();
+        try {
+            IntHashSet likedFilms = filmsByUser.get(userId);
+            if (likedFilms == null) {
+                return new int[0];
+            }
+            int[] filmIds = new int[Math.min(likedFilms.size(), MAX_SCANNED_LIKES)];
+            likedFilms.copyTo(filmIds, 0, filmIds.length);
+            return filmIds;
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    private int[] likers(int filmId) {
+        return likeArray(filmId, MAX_SCANNED_LIKES);
+    }
+
+    private long[] weightedFilms(int userId, int weight, IntHashSet excluded) {
+        int[] filmIds = likedFilms(userId);
+        long[] weighted = new long[filmIds.length];
+        int count = 0;
+        for (int filmId : filmIds) {
+            if (!excluded.contains(filmId)) {
+                weighted[count++] = ((long) filmId << 32) | weight;
+            }
+        }
+        return Arrays.copyOf(weighted, count);
+    }
+
+    private void indexLike(int filmId, int userId) {
+        Lock userLock = userLockFor(userId);
+        userLock.lock();
+        try {
+            filmsByUser.computeIfAbsent(userId, key -> new IntHashSet()).add(filmId);
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        Lock userLock = userLockFor(userId);
+        userLock.lock();
+        try {
+            IntHashSet likedFilms = filmsByUser.get(userId);
+            if (likedFilms != null) {
+                likedFilms.remove(filmId);
+            }
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    private void updateRating(int filmId, int oldCount, int newCount) {
+        synchronized (rating) {
+            rating.remove(ratingKey(filmId, oldCount));
+            rating.add(ratingKey(filmId, newCount));
+        }
+    }
+
+    private Lock lockFor(int filmId) {
+        return locks[filmId & (LOCK_STRIPES - 1)];
+    }
+
+    private Lock userLockFor(int userId) {
+        return userLocks[userId & (LOCK_STRIPES - 1)];
+    }
+
+    private int findByName(String name) {
+        int mask = meta.getInt(META_NAME_SLOTS) - 1;
+        int hash = name.hashCode();
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            long entry = names.getLong((long) slot * Long.BYTES);
+            if (entry == 0) {
+                return 0;
+            }
+            int id = (int) entry;
+            if (id != REMOVED && (int) (entry >>> 32) == hash && name(id).equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    private void addName(String name, int id) {
+        int mask = meta.getInt(META_NAME_SLOTS) - 1;
+        int hash = name.hashCode();
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            long entry = names.getLong((long) slot * Long.BYTES);
+            if (entry == 0 || (int) entry == REMOVED) {
+                names.putLong((long) slot * Long.BYTES, ((long) hash << 32) | (id & 0xFFFFFFFFL));
+                if (entry == 0) {
+                    meta.putInt(META_NAME_USED, meta.getInt(META_NAME_USED) + 1);
+                }
+                return;
+            }
+        }
+    }
+
+    private void removeName(String name, int id) {
+        int mask = meta.getInt(META_NAME_SLOTS) - 1;
+        int hash = name.hashCode();
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            long entry = names.getLong((long) slot * Long.BYTES);
+            if (entry == 0) {
+                return;
+            }
+            if ((int) entry == id) {
+                names.putLong((long) slot * Long.BYTES, ((long) hash << 32) | (REMOVED & 0xFFFFFFFFL));
+                return;
+            }
+        }
+    }
+
+    private void reserveNameSlot() {
+        int slots = meta.getInt(META_NAME_SLOTS);
+        if ((meta.getInt(META_NAME_USED) + 1) * 2L <= slots) {
+            return;
+        }
+        int lastId = lastId();
+        while ((lastId + 1) * 2L > slots) {
+            slots *= 2;
+        }
+        names.ensureCapacity((long) slots * Long.BYTES);
+        byte[] empty = new byte[(int) Math.min((long) slots * Long.BYTES, 1 << 20)];
+        for (long position = 0; position < (long) slots * Long.BYTES; position += empty.length) {
+            names.put(position, empty);
+        }
+        meta.putInt(META_NAME_SLOTS, slots);
+        meta.putInt(META_NAME_USED, 0);
+        for (int id = 1; id <= lastId; id++) {
+            addName(name(id), id);
+        }
+    }
+
+    private static long ratingKey(int filmId, int likeCount) {
+        return ((long) likeCount << 32) | (Integer.MAX_VALUE - filmId);
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long column(int id) {
+        return (long) (id - 1) * Integer.BYTES;
+    }
+
+    private static long reference(int id) {
+        return (long) (id - 1) * REFERENCE_SIZE;
+    }
+}
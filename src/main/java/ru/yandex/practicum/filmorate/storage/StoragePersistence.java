@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохраняет содержимое хранилищ в памяти на диск: журнал изменений и периодические снимки.
+ * Снимок snapshot-N содержит все изменения из сегментов журнала с номерами меньше N,
+ * поэтому при старте загружается последний снимок и проигрываются сегменты начиная с N.
+ * В режиме mapped фильмы уже лежат в файлах, поэтому журнал всегда включен и хранит только пользователей:
+ * иначе после перезапуска новые пользователи получили бы id старых вместе с их лайками.
+ */
+@Component
+@ConditionalOnExpression("'${filmorate.storage.type:memory}' == 'mapped' or "
+        + "(${filmorate.persistence.enabled:false} and '${filmorate.storage.type:memory}' == 'memory')")
+@Slf4j
+public class StoragePersistence implements Closeable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final boolean fsync;
+    private final Duration snapshotInterval;
+    private ScheduledExecutorService scheduler;
+    private WriteAheadLog journal;
+
+    public StoragePersistence(@Nullable InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              @Value("${filmorate.persistence.directory:data}") Path directory,
+                              @Value("${filmorate.persistence.fsync:true}") boolean fsync,
+                              @Value("${filmorate.persistence.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        long segment = recover();
+        journal = new WriteAheadLog(directory, segment, fsync);
+        if (filmStorage != null) {
+            filmStorage.attachJournal(journal);
+        }
+        userStorage.attachJournal(journal);
+        if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = snapshotInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long recover() throws IOException {
+        long started = System.nanoTime();
+        JournalCodec.Handler handler = new RestoreHandler();
+        List<Long> snapshots = WriteAheadLog.listNumbered(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long firstSegment = 0;
+        long records = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.get(snapshots.size() - 1);
+            records += WriteAheadLog.readFrames(snapshotPath(firstSegment), handler);
+        }
+        long lastSegment = firstSegment;
+        for (long segment : WriteAheadLog.listSegments(directory)) {
+            if (segment >= firstSegment) {
+                records += WriteAheadLog.readFrames(WriteAheadLog.segmentPath(directory, segment), handler);
+                lastSegment = segment;
+            }
+        }
+        log.info("Из {} восстановлено {} записей за {} мс", directory, records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return lastSegment + 1;
+    }
+
+    public synchronized void snapshot() throws IOException {
+        Runnable rotate = () -> userStorage.quiesce(() -> WriteAheadLog.await(journal.rotate()));
+        if (filmStorage != null) {
+            filmStorage.quiesce(rotate);
+        } else {
+            rotate.run();
+        }
+        long segment = journal.getSegment();
+        Path target = snapshotPath(segment);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+            if (filmStorage != null) {
+                for (Film film : filmStorage.getAllFilms()) {
+                    WriteAheadLog.writeFrame(out, JournalCodec.filmPut(film));
+                }
+            }
+            List<User> users = userStorage.getAllUsers();
+            for (User user : users) {
+                WriteAheadLog.writeFrame(out, JournalCodec.userPut(user));
+            }
+            for (User user : users) {
+                for (Integer friendId : user.getFriends()) {
+                    if (user.getId() <= friendId) {
+                        WriteAheadLog.writeFrame(out,
+                                JournalCodec.edge(JournalCodec.USER_LINK, user.getId(), friendId));
+                    }
+                }
+            }
+        }
+        if (fsync) {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long oldSegment : WriteAheadLog.listSegments(directory)) {
+            if (oldSegment < segment) {
+                Files.deleteIfExists(WriteAheadLog.segmentPath(directory, oldSegment));
+            }
+        }
+        for (long oldSnapshot : WriteAheadLog.listNumbered(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (oldSnapshot < segment) {
+                Files.deleteIfExists(snapshotPath(oldSnapshot));
+            }
+        }
+        log.info("Сохранен снимок хранилищ {}", target.getFileName());
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (journal != null) {
+            if (filmStorage != null) {
+                filmStorage.attachJournal(null);
+            }
+            userStorage.attachJournal(null);
+            journal.close();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось сохранить снимок хранилищ", e);
+        }
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(SNAPSHOT_PREFIX + segment + SNAPSHOT_SUFFIX);
+    }
+
+    private class RestoreHandler implements JournalCodec.Handler {
+        @Override
+        public void filmPut(Film film) {
+            if (filmStorage != null) {
+                filmStorage.restore(film);
+            }
+        }
+
+        @Override
+        public void filmLike(int filmId, int userId) {
+            if (filmStorage != null) {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+
+        @Override
+        public void filmUnlike(int filmId, int userId) {
+            if (filmStorage != null) {
+                filmStorage.removeLike(filmId, userId);
+            }
+        }
+
+        @Override
+        public void userPut(User user) {
+            userStorage.restore(user);
+        }
+
+        @Override
+        public void userLink(int id, int friendId) {
+            userStorage.link(id, friendId);
+        }
+
+        @Override
+        public void userUnlink(int id, int friendId) {
+            userStorage.unlink(id, friendId);
+        }
+    }
+}
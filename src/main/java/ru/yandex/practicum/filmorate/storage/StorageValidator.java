@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.apache.commons.lang3.StringUtils;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+final class StorageValidator {
+    private StorageValidator() {
+    }
+
+    static <T> BatchItemResult[] checkAll(List<T> items, Consumer<T> check) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        IntStream.range(0, results.length).parallel().forEach(index -> {
+            try {
+                check.accept(items.get(index));
+            } catch (IncorrectParameterException e) {
+                results[index] = BatchItemResult.failure(index, e.getParameter());
+            } catch (RuntimeException e) {
+                results[index] = BatchItemResult.failure(index, "Некорректные данные");
+            }
+        });
+        return results;
+    }
+
+    static void checkFilm(Film film) {
+        if (StringUtils.isBlank(film.getName())) {
+            throw new IncorrectParameterException("Название фильма не может быть пустым");
+        }
+        if (film.getDescription().length() > 200) {
+            throw new IncorrectParameterException("Описание фильма не должно превышать 200 символов");
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().toString().isBlank() ||
+                film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+            throw new IncorrectParameterException("Дата релиза не может быть раньше 28.12.1895");
+        }
+        if (film.getDuration() <= 0) {
+            throw new IncorrectParameterException("Продолжительность фильма должна быть больше нуля");
+        }
+        if (film.getLikes() == null) {
+            film.setLikes(new IntHashSet());
+        }
+    }
+
+    static void checkUser(User user) {
+        if (StringUtils.isBlank(user.getEmail())) {
+            throw new IncorrectParameterException("Адрес электронной почты не может быть пустым.");
+        }
+        if (!user.getEmail().contains("@")) {
+            throw new IncorrectParameterException("Некорректный адрес электронной почты");
+        }
+        if (StringUtils.isBlank(user.getLogin())) {
+            throw new IncorrectParameterException("Логин пользователя не может быть пустым");
+        }
+        if (user.getLogin().contains(" ")) {
+            throw new IncorrectParameterException("Логин пользователя не может содержать пробелы");
+        }
+        if (StringUtils.isBlank(user.getName())) {
+            user.setName(user.getLogin());
+        }
+        if (user.getBirthday() != null && !user.getBirthday().toString().isBlank() &&
+                user.getBirthday().isAfter(LocalDate.now())) {
+            throw new IncorrectParameterException("Дата рождения не может быть в будущем");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Отбор k лучших id по целочисленной оценке без упаковки: минимальная куча на long,
+ * где в старших битах оценка, а в младших инвертированный id, чтобы при равной оценке выигрывал меньший id.
+ */
+public final class TopK {
+    private final long[] heap;
+    private int size;
+
+    public TopK(int k) {
+        heap = new long[k];
+    }
+
+    public void offer(int id, int score) {
+        long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    public int[] ids() {
+        long[] keys = sortedKeys();
+        int[] ids = new int[keys.length];
+        for (int index = 0; index < keys.length; index++) {
+            ids[index] = Integer.MAX_VALUE - (int) keys[index];
+        }
+        return ids;
+    }
+
+    public int[] scores() {
+        long[] keys = sortedKeys();
+        int[] scores = new int[keys.length];
+        for (int index = 0; index < keys.length; index++) {
+            scores[index] = (int) (keys[index] >>> 32);
+        }
+        return scores;
+    }
+
+    private long[] sortedKeys() {
+        long[] keys = Arrays.copyOf(heap, size);
+        Arrays.sort(keys);
+        for (int left = 0, right = keys.length - 1; left < right; left++, right--) {
+            long key = keys[left];
+            keys[left] = keys[right];
+            keys[right] = key;
+        }
+        return keys;
+    }
+
+    private void siftUp(int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private void siftDown(int index) {
+        long key = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
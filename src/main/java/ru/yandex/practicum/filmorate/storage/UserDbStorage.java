@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.UserAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.logging.SampledLogFilter;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+@Slf4j
+public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT U.USER_ID, U.USER_EMAIL, U.USER_LOGIN, U.USER_NAME, " +
+            "U.BIRTHDAY, ARRAY_AGG(FR.FRIEND_ID ORDER BY FR.FRIEND_ID) FILTER (WHERE FR.FRIEND_ID IS NOT NULL) " +
+            "AS FRIENDS FROM %s AS U LEFT JOIN FRIENDSHIP AS FR ON U.USER_ID = FR.USER_ID " +
+            "GROUP BY U.USER_ID, U.USER_EMAIL, U.USER_LOGIN, U.USER_NAME, U.BIRTHDAY ";
+    private static final int MAX_SCANNED_FRIENDS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("USERS")
+                .usingColumns("USER_EMAIL", "USER_LOGIN", "USER_NAME", "BIRTHDAY")
+                .usingGeneratedKeyColumns("USER_ID");
+    }
+
+    public List<User> getAllUsers() {
+        return jdbcTemplate.query(String.format(SELECT_USERS, "USERS") + "ORDER BY U.USER_ID", this::mapUser);
+    }
+
+    public List<User> getUsers(int afterId, int limit) {
+        return jdbcTemplate.query(String.format(SELECT_USERS,
+                        "(SELECT * FROM USERS WHERE USER_ID > ? ORDER BY USER_ID LIMIT ?)") + "ORDER BY U.USER_ID",
+                this::mapUser, afterId, limit);
+    }
+
+    public User create(User user) {
+        StorageValidator.checkUser(user);
+        Map<String, Object> values = new HashMap<>();
+        values.put("USER_EMAIL", user.getEmail());
+        values.put("USER_LOGIN", user.getLogin());
+        values.put("USER_NAME", user.getName());
+        values.put("BIRTHDAY", user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+        try {
+            user.setId(userInsert.executeAndReturnKey(values).intValue());
+        } catch (DuplicateKeyException e) {
+            throw new UserAlreadyExistException("Пользователь с электронной почтой " +
+                    user.getEmail() + " уже зарегистрирован.");
+        }
+        user.setFriends(new LinkedHashSet<>());
+        log.info("Добавлен пользователь {} с id {}", user.getName(), user.getId());
+        log.debug("Добавлен пользователь {}", user);
+        return user;
+    }
+
+    @Transactional
+    public List<BatchItemResult> createAll(List<User> newUsers) {
+        BatchItemResult[] results = StorageValidator.checkAll(newUsers, StorageValidator::checkUser);
+        List<User> validUsers = new ArrayList<>();
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] == null) {
+                validUsers.add(newUsers.get(index));
+            }
+        }
+        int[] ids = JdbcRows.insertAll(jdbcTemplate, "INSERT INTO USERS (USER_EMAIL, USER_LOGIN, USER_NAME, " +
+                        "BIRTHDAY) SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM USERS WHERE USER_EMAIL = ?)",
+                "USER_ID", validUsers, (statement, user) -> {
+                    statement.setString(1, user.getEmail());
+                    statement.setString(2, user.getLogin());
+                    statement.setString(3, user.getName());
+                    statement.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                    statement.setString(5, user.getEmail());
+                });
+        int created = 0;
+        for (int index = 0, valid = 0; index < results.length; index++) {
+            if (results[index] != null) {
+                continue;
+            }
+            User user = newUsers.get(index);
+            int id = ids[valid++];
+            if (id == 0) {
+                results[index] = BatchItemResult.failure(index, "Пользователь с электронной почтой " +
+                        user.getEmail() + " уже зарегистрирован.");
+            } else {
+                user.setId(id);
+                user.setFriends(new LinkedHashSet<>());
+                results[index] = BatchItemResult.success(index, id);
+                created++;
+            }
+        }
+        log.info("Добавлено пользователей: {} из {}", created, results.length);
+        return Arrays.asList(results);
+    }
+
+    @Transactional
+    public User update(User user) {
+        if (user.getId() <= 0 || !exists(user.getId())) {
+            throw new UserNotFoundException("Пользователь с id " + user.getId() + " не найден.");
+        }
+        StorageValidator.checkUser(user);
+        try {
+            jdbcTemplate.update("UPDATE USERS SET USER_EMAIL = ?, USER_LOGIN = ?, USER_NAME = ?, BIRTHDAY = ? " +
+                            "WHERE USER_ID = ?", user.getEmail(), user.getLogin(), user.getName(),
+                    user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw new UserAlreadyExistException("Пользователь с электронной почтой " +
+                    user.getEmail() + " уже зарегистрирован.");
+        }
+        log.info("Обновлен пользователь {} с id {}", user.getName(), user.getId());
+        return getUserById(user.getId());
+    }
+
+    public User getUserById(int id) {
+        return findUserById(id).orElseThrow(() -> new UserNotFoundException("Некорректный id " + id));
+    }
+
+    public Optional<User> findUserById(int id) {
+        List<User> users = jdbcTemplate.query(String.format(SELECT_USERS,
+                "(SELECT * FROM USERS WHERE USER_ID = ?)"), this::mapUser, id);
+        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+    }
+
+    public boolean containsUser(int id) {
+        return id > 0 && exists(id);
+    }
+
+    public int getLastId() {
+        Integer lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(USER_ID), 0) FROM USERS", Integer.class);
+        return lastId == null ? 0 : lastId;
+    }
+
+    public int[] getFriendCounts() {
+        return jdbcTemplate.queryForList("SELECT COUNT(FR.FRIEND_ID) FROM USERS AS U " +
+                "LEFT JOIN FRIENDSHIP AS FR ON U.USER_ID = FR.USER_ID GROUP BY U.USER_ID", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public Set<Integer> getFriends(int id) {
+        userIdIsExist(id);
+        return new LinkedHashSet<>(jdbcTemplate.queryForList(
+                "SELECT FRIEND_ID FROM FRIENDSHIP WHERE USER_ID = ? ORDER BY FRIEND_ID", Integer.class, id));
+    }
+
+    public Set<Integer> getCommonFriends(int id, int otherId) {
+        userIdIsExist(id);
+        userIdIsExist(otherId);
+        return new LinkedHashSet<>(jdbcTemplate.queryForList("SELECT F1.FRIEND_ID FROM FRIENDSHIP AS F1 " +
+                        "JOIN FRIENDSHIP AS F2 ON F1.FRIEND_ID = F2.FRIEND_ID " +
+                        "WHERE F1.USER_ID = ? AND F2.USER_ID = ? ORDER BY F1.FRIEND_ID",
+                Integer.class, id, otherId));
+    }
+
+    public List<Integer> getFriendRecommendations(int id, int limit) {
+        userIdIsExist(id);
+        return jdbcTemplate.queryForList("SELECT F2.FRIEND_ID FROM (SELECT FRIEND_ID FROM FRIENDSHIP " +
+                        "WHERE USER_ID = ? LIMIT ?) AS F1 JOIN FRIENDSHIP AS F2 ON F1.FRIEND_ID = F2.USER_ID " +
+                        "WHERE F2.FRIEND_ID <> ? AND NOT EXISTS (SELECT 1 FROM FRIENDSHIP AS F3 " +
+                        "WHERE F3.USER_ID = ? AND F3.FRIEND_ID = F2.FRIEND_ID) " +
+                        "GROUP BY F2.FRIEND_ID ORDER BY COUNT(*) DESC, F2.FRIEND_ID LIMIT ?",
+                Integer.class, id, MAX_SCANNED_FRIENDS, id, id, limit);
+    }
+
+    @Transactional
+    public boolean link(int id, int friendId) {
+        userIdIsExist(id);
+        userIdIsExist(friendId);
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO FRIENDSHIP (USER_ID, FRIEND_ID) VALUES (?, ?)",
+                    edges(id, friendId), 2, (statement, edge) -> {
+                        statement.setInt(1, edge[0]);
+                        statement.setInt(2, edge[1]);
+                    });
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Transactional
+    public boolean[] linkAll(List<Friendship> friendships) {
+        List<int[]> edges = new ArrayList<>(friendships.size() * 2);
+        int[] primaryEdges = new int[friendships.size()];
+        for (int index = 0; index < primaryEdges.length; index++) {
+            Friendship friendship = friendships.get(index);
+            primaryEdges[index] = edges.size();
+            edges.addAll(edges(friendship.getUserId(), friendship.getFriendId()));
+        }
+        boolean[] inserted = JdbcRows.applied(jdbcTemplate.batchUpdate("INSERT INTO FRIENDSHIP (USER_ID, FRIEND_ID) " +
+                        "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?)",
+                edges, JdbcRows.BATCH_SIZE, (statement, edge) -> {
+                    statement.setInt(1, edge[0]);
+                    statement.setInt(2, edge[1]);
+                    statement.setInt(3, edge[0]);
+                    statement.setInt(4, edge[1]);
+                }), edges.size());
+        boolean[] linked = new boolean[primaryEdges.length];
+        for (int index = 0; index < linked.length; index++) {
+            linked[index] = inserted[primaryEdges[index]];
+        }
+        return linked;
+    }
+
+    @Transactional
+    public boolean unlink(int id, int friendId) {
+        userIdIsExist(id);
+        userIdIsExist(friendId);
+        int[][] deleted = jdbcTemplate.batchUpdate("DELETE FROM FRIENDSHIP WHERE USER_ID = ? AND FRIEND_ID = ?",
+                edges(id, friendId), 2, (statement, edge) -> {
+                    statement.setInt(1, edge[0]);
+                    statement.setInt(2, edge[1]);
+                });
+        return deleted[0][0] > 0;
+    }
+
+    public void userIdIsExist(int id) {
+        if (!containsUser(id)) {
+            log.debug(SampledLogFilter.SAMPLED, "Передан некорректный id {}", id);
+            throw new UserNotFoundException("Некорректный id " + id);
+        }
+    }
+
+    private boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM USERS WHERE USER_ID = ?)", Boolean.class, id));
+    }
+
+    private static List<int[]> edges(int id, int friendId) {
+        if (id == friendId) {
+            return List.<int[]>of(new int[]{id, friendId});
+        }
+        return List.of(new int[]{id, friendId}, new int[]{friendId, id});
+    }
+
+    private User mapUser(ResultSet resultSet, int rowNum) throws SQLException {
+        Date birthday = resultSet.getDate("BIRTHDAY");
+        return User.builder()
+                .id(resultSet.getInt("USER_ID"))
+                .email(resultSet.getString("USER_EMAIL"))
+                .login(resultSet.getString("USER_LOGIN"))
+                .name(resultSet.getString("USER_NAME"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .friends(JdbcRows.toIds(resultSet.getArray("FRIENDS")))
+                .build();
+    }
+}
@@ -1,19 +1,45 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
     List<User> getAllUsers();
 
+    List<User> getUsers(int afterId, int limit);
+
     User create(User user);
 
+    List<BatchItemResult> createAll(List<User> users);
+
     User update(User user);
 
     User getUserById(int id);
 
+    Optional<User> findUserById(int id);
+
+    boolean containsUser(int id);
+
     int getLastId();
 
+    Set<Integer> getFriends(int id);
+
+    Set<Integer> getCommonFriends(int id, int otherId);
+
+    List<Integer> getFriendRecommendations(int id, int limit);
+
+    int[] getFriendCounts();
+
+    boolean link(int id, int friendId);
+
+    boolean[] linkAll(List<Friendship> friendships);
+
+    boolean unlink(int id, int friendId);
+
     void userIdIsExist(int id);
 }
\ No newline at end of file
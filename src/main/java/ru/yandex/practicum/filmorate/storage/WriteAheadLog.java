@@ -0,0 +1,264 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений хранилищ. Записи копятся в очереди, а один поток пишет их пачками
+ * и делает fsync один раз на пачку; вызывающие потоки ждут подтверждения записи.
+ * Каждая запись хранится как длина, CRC32 и тело, поэтому оборванный хвост при чтении отбрасывается.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final int MAX_BATCH = 4_096;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private FileChannel channel;
+    private volatile long segment;
+    private volatile boolean closed;
+
+    public WriteAheadLog(Path directory, long segment, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        writer = new Thread(this::writeLoop, "write-ahead-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public CompletableFuture<Void> append(byte[] record) {
+        if (closed) {
+            throw new IllegalStateException("Журнал изменений закрыт");
+        }
+        return enqueue(new Entry(Entry.RECORD, record));
+    }
+
+    CompletableFuture<Void> rotate() {
+        return enqueue(new Entry(Entry.ROTATE, null));
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запись в журнал изменений прервана", e);
+        }
+        if (closed && !writer.isAlive()) {
+            failPending();
+        }
+        return entry.written;
+    }
+
+    long getSegment() {
+        return segment;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    public static void await(CompletableFuture<Void> written) {
+        if (written == null) {
+            return;
+        }
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Не удалось сохранить изменения на диск", e.getCause());
+        }
+    }
+
+    public static void awaitAll(List<CompletableFuture<Void>> written) {
+        for (CompletableFuture<Void> future : written) {
+            await(future);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            await(enqueue(new Entry(Entry.STOP, null)));
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failPending();
+        }
+        channel.close();
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    static List<Long> listSegments(Path directory) throws IOException {
+        return listNumbered(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    static List<Long> listNumbered(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Пропущен посторонний файл {}", name);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    static void writeFrame(OutputStream out, byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(record.length);
+        data.writeInt((int) crc.getValue());
+        data.write(record);
+    }
+
+    static long readFrames(Path file, JournalCodec.Handler handler) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                try {
+                    int checksum = in.readInt();
+                    if (length <= 0) {
+                        throw new IOException("Некорректная длина записи " + length);
+                    }
+                    byte[] record = new byte[length];
+                    in.readFully(record);
+                    CRC32 crc = new CRC32();
+                    crc.update(record);
+                    if ((int) crc.getValue() != checksum) {
+                        throw new IOException("Не совпала контрольная сумма записи");
+                    }
+                    JournalCodec.decode(record, handler);
+                    records++;
+                } catch (IOException e) {
+                    log.warn("Файл {} поврежден после записи {}, остаток пропущен: {}", file.getFileName(),
+                            records, e.getMessage());
+                    return records;
+                }
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                stopped = writeBatch(batch, buffer);
+                for (Entry entry : batch) {
+                    entry.written.complete(null);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Не удалось записать журнал изменений", e);
+                for (Entry entry : batch) {
+                    entry.written.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void failPending() {
+        List<Entry> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        IllegalStateException closedError = new IllegalStateException("Журнал изменений закрыт");
+        for (Entry entry : pending) {
+            entry.written.completeExceptionally(closedError);
+        }
+    }
+
+    private boolean writeBatch(List<Entry> batch, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        boolean stopped = false;
+        for (Entry entry : batch) {
+            if (entry.type == Entry.RECORD) {
+                writeFrame(buffer, entry.record);
+            } else if (entry.type == Entry.ROTATE) {
+                flush(buffer);
+                channel.close();
+                channel = openSegment(segment + 1);
+                segment++;
+            } else {
+                stopped = true;
+            }
+        }
+        flush(buffer);
+        return stopped;
+    }
+
+    private void flush(ByteArrayOutputStream buffer) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        buffer.reset();
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static final class Entry {
+        private static final int RECORD = 0;
+        private static final int ROTATE = 1;
+        private static final int STOP = 2;
+
+        private final int type;
+        private final byte[] record;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private Entry(int type, byte[] record) {
+            this.type = type;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+CREATE TABLE IF NOT EXISTS FILMS
+(
+    FILM_ID      INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    FILM_NAME    VARCHAR      NOT NULL,
+    DESCRIPTION  VARCHAR(200) NOT NULL,
+    RELEASE_DATE DATE         NOT NULL,
+    DURATION     INTEGER      NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS FILMS_FILM_NAME_UINDEX ON FILMS (FILM_NAME);
+
+CREATE INDEX IF NOT EXISTS FILMS_RELEASE_DATE_INDEX ON FILMS (RELEASE_DATE);
+
+CREATE INDEX IF NOT EXISTS FILMS_DURATION_INDEX ON FILMS (DURATION);
+
+CREATE TABLE IF NOT EXISTS USERS
+(
+    USER_ID    INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    USER_EMAIL VARCHAR NOT NULL,
+    USER_LOGIN VARCHAR NOT NULL,
+    USER_NAME  VARCHAR NOT NULL,
+    BIRTHDAY   DATE
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_USER_EMAIL_UINDEX ON USERS (USER_EMAIL);
+
+CREATE TABLE IF NOT EXISTS LIKES
+(
+    FILM_ID INTEGER NOT NULL REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
+    USER_ID INTEGER NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    PRIMARY KEY (FILM_ID, USER_ID)
+);
+
+CREATE INDEX IF NOT EXISTS LIKES_USER_ID_INDEX ON LIKES (USER_ID);
+
+ALTER TABLE LIKES ADD COLUMN IF NOT EXISTS CREATED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS LIKES_CREATED_AT_INDEX ON LIKES (CREATED_AT);
+
+CREATE TABLE IF NOT EXISTS FRIENDSHIP
+(
+    USER_ID   INTEGER NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    FRIEND_ID INTEGER NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    STATUS    BOOLEAN NOT NULL DEFAULT TRUE,
+    PRIMARY KEY (USER_ID, FRIEND_ID)
+);
+
+CREATE INDEX IF NOT EXISTS FRIENDSHIP_FRIEND_ID_INDEX ON FRIENDSHIP (FRIEND_ID);
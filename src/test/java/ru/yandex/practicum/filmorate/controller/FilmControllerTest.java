@@ -2,29 +2,42 @@ package ru.yandex.practicum.filmorate.controller;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class FilmControllerTest {
     static final int WRONGID = 999999;
+    static final FilmFilter ALL = new FilmFilter();
     private Film film;
     private User user;
 
     private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
     private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
     private final FilmService filmService = new FilmService(filmStorage, userStorage);
-    private final FilmController filmController = new FilmController(filmStorage, filmService);
+    private final FilmController filmController = new FilmController(filmStorage, filmService, new ResponseCache());
+    private final WebRequest request = new ServletWebRequest(new MockHttpServletRequest());
 
     @BeforeEach
     public void beforeEach() {
@@ -48,11 +61,13 @@ class FilmControllerTest {
     @Test
     void createWithCorrectAttributesTest() {
         filmController.create(film);
-        Film testFilm = filmController.getFilmById(filmController.getLastId());
+        Film testFilm = filmController.getFilmById(filmController.getLastId(), request);
         assertEquals(film, testFilm, "Метод create работает некорректно. Фильмы не совпадают");
-        testFilm.setName("Kjd");
-        assertNotEquals(film, testFilm, "Метод create работает некорректно.Фильмы совпадают");
-        assertEquals(1, filmController.getAllFilms().size(),
+        assertThrows(UnsupportedOperationException.class, () -> testFilm.setName("Kjd"),
+                "Метод create работает некорректно. Сохраненный фильм можно изменить");
+        assertThrows(UnsupportedOperationException.class, () -> testFilm.getLikes().add(1),
+                "Метод create работает некорректно. Лайки сохраненного фильма можно изменить");
+        assertEquals(1, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно.Неверное число фильмов");
     }
 
@@ -60,7 +75,7 @@ class FilmControllerTest {
     void createWithEmptyNameTest() {
         film.setName("");
         assertThrows(IncorrectParameterException.class, () -> filmController.create(film));
-        assertEquals(0, filmController.getAllFilms().size(),
+        assertEquals(0, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно.Сохранен Фильм с пустым названием");
     }
 
@@ -71,7 +86,7 @@ class FilmControllerTest {
                 "Двести символов!!!!");
         assertThrows(IncorrectParameterException.class, () -> filmController.create(film),
                 "Метод create работает некорректно.Сохранен Фильм с описанием более 200 символов");
-        assertEquals(0, filmController.getAllFilms().size(),
+        assertEquals(0, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно.Неверное число фильмов");
     }
 
@@ -80,7 +95,7 @@ class FilmControllerTest {
         film.setReleaseDate(LocalDate.of(1885, 12, 28));
         assertThrows(IncorrectParameterException.class, () -> filmController.create(film),
                 "Метод create работает некорректно.Сохранен фильм с датой релиза до 28.12.1895");
-        assertEquals(0, filmController.getAllFilms().size(),
+        assertEquals(0, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно. Неверное число фильмов");
     }
 
@@ -89,7 +104,7 @@ class FilmControllerTest {
         film.setDuration(0);
         assertThrows(IncorrectParameterException.class, () -> filmController.create(film),
                 "Метод create работает некорректно. Сохранен фильм с продолжительностью 0");
-        assertEquals(0, filmController.getAllFilms().size(),
+        assertEquals(0, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно. Неверное число фильмов");
     }
 
@@ -98,7 +113,7 @@ class FilmControllerTest {
         film.setDuration(-20);
         assertThrows(IncorrectParameterException.class, () -> filmController.create(film),
                 "Метод create работает некорректно. Сохранен фильм с отрицательной продолжительностью");
-        assertEquals(0, filmController.getAllFilms().size(),
+        assertEquals(0, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно. Неверное число фильмов");
     }
 
@@ -107,7 +122,7 @@ class FilmControllerTest {
         filmController.create(film);
         assertThrows(FilmAlreadyExistException.class, () -> filmController.create(film),
                 "Метод create работает некорректно. Сохранен фильм с существующим названием");
-        assertEquals(1, filmController.getAllFilms().size(),
+        assertEquals(1, filmController.getAllFilms(ALL).size(),
                 "Метод create работает некорректно. Неверное число фильмов");
     }
 
@@ -117,40 +132,111 @@ class FilmControllerTest {
         film.setId(filmController.getLastId());
         film.setDescription("Другое описание фильма");
         filmController.update(film);
-        Film testFilm = filmController.getFilmById(filmController.getLastId());
+        Film testFilm = filmController.getFilmById(filmController.getLastId(), request);
         assertEquals(film, testFilm, "Метод update работает некорректно. Фильмы не совпадают");
-        assertEquals(1, filmController.getAllFilms().size(),
+        assertEquals(1, filmController.getAllFilms(ALL).size(),
                 "Метод update работает некорректно. Неверное число фильмов");
     }
 
+    @Test
+    void updateNameTest() {
+        filmController.create(film);
+        film.setName("Фильм 2");
+        filmController.create(film);
+        film.setId(1);
+        assertThrows(FilmAlreadyExistException.class, () -> filmController.update(film),
+                "Метод update работает некорректно. Сохранен фильм с существующим названием");
+        film.setName("Новое название");
+        filmController.update(film);
+        assertEquals("Новое название", filmController.getFilmById(1, request).getName(),
+                "Метод update работает некорректно. Название не изменилось");
+        film.setName("Название фильма");
+        film.setId(0);
+        filmController.create(film);
+        assertEquals(3, filmController.getAllFilms(ALL).size(),
+                "Метод update работает некорректно. Старое название фильма не освобождено");
+    }
+
     @Test
     void getAllFilms() {
         filmController.create(film);
-        Film testFilm1 = filmController.getFilmById(filmController.getLastId());
+        Film testFilm1 = filmController.getFilmById(filmController.getLastId(), request);
         film.setName("Другое название фильма");
         filmController.create(film);
-        Film testFilm2 = filmController.getFilmById(filmController.getLastId());
-        List<Film> testFilms = filmController.getAllFilms();
+        Film testFilm2 = filmController.getFilmById(filmController.getLastId(), request);
+        List<Film> testFilms = filmController.getAllFilms(ALL);
 
         assertEquals(2, testFilms.size(),
                 "Метод getAllFilms работает некорректно. Неверное число фильмов");
         assertEquals(testFilm1, testFilms.get(0), "Фильмы не совпадают");
-        testFilm2.setDescription("ups");
-        assertNotEquals(testFilm2, testFilms.get(1),
-                "Метод getAllFilms работает некорректно. Фильмы совпадают");
+        assertSame(testFilm2, testFilms.get(1),
+                "Метод getAllFilms работает некорректно. Неизмененный фильм скопирован повторно");
+        assertThrows(UnsupportedOperationException.class, () -> testFilm2.setDescription("ups"),
+                "Метод getAllFilms работает некорректно. Сохраненный фильм можно изменить");
+    }
+
+    @Test
+    void getFilmsPageTest() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            film.setName("Фильм " + i);
+            filmController.create(film);
+        }
+        List<Film> page = filmController.getFilms(2, 2, ALL);
+        assertEquals(2, page.size(), "Метод getFilms работает некорректно. Неверный размер страницы");
+        assertEquals(3, page.get(0).getId(), "Метод getFilms работает некорректно. Неверное начало страницы");
+        assertEquals(4, page.get(1).getId(), "Метод getFilms работает некорректно");
+        assertEquals(1, filmController.getFilms(4, 10, ALL).size(),
+                "Метод getFilms работает некорректно. Неверный размер последней страницы");
+        assertThrows(IncorrectParameterException.class, () -> filmController.getFilms(0, 0, ALL),
+                "Метод getFilms работает некорректно при размере страницы меньше 1");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        filmController.streamFilms(ALL).writeTo(outputStream);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length, "Метод streamFilms работает некорректно. Неверное число фильмов");
+        assertTrue(lines[4].startsWith("{\"id\":5,"), "Метод streamFilms работает некорректно");
     }
 
     @Test
     void getFilmByIdWithCorrectAttributesTest() {
         filmController.create(film);
-        assertEquals(film, filmController.getFilmById(1), "Метод getFilmById работает некорректно.");
+        assertEquals(film, filmController.getFilmById(1, request), "Метод getFilmById работает некорректно.");
+    }
+
+    @Test
+    void getFilmByIdSnapshotTest() {
+        userStorage.create(user);
+        filmController.create(film);
+        Film snapshot = filmController.getFilmById(1, request);
+        assertSame(snapshot, filmController.getFilmById(1, request),
+                "Метод getFilmById работает некорректно. Неизмененный фильм скопирован повторно");
+        filmController.addLike(1, 1);
+        Film likedFilm = filmController.getFilmById(1, request);
+        assertNotSame(snapshot, likedFilm, "Метод getFilmById работает некорректно. Снимок фильма не обновлен");
+        assertEquals(0, snapshot.getLikes().size(), "Метод addLike работает некорректно. Изменен старый снимок");
+        assertEquals(1, likedFilm.getLikes().size(), "Метод getFilmById работает некорректно");
+        assertSame(likedFilm, filmController.getFilmById(1, request),
+                "Метод getFilmById работает некорректно. Снимок копируется при чтении после лайка");
+    }
+
+    @Test
+    void storedFilmRoundTripTest() {
+        filmController.create(film);
+        Film storedFilm = filmController.getFilmById(1, request);
+        assertEquals(storedFilm, filmController.update(storedFilm),
+                "Метод update работает некорректно с сохраненным фильмом");
+        assertThrows(FilmAlreadyExistException.class, () -> filmController.create(storedFilm),
+                "Метод create работает некорректно с сохраненным фильмом");
+        assertEquals(1, storedFilm.getId(), "Сохраненный фильм изменен при записи");
     }
 
     @Test
     void getFilmByIdWithWrongIdTest() {
         filmController.create(film);
-        assertThrows(FilmNotFoundException.class, () -> filmController.getFilmById(WRONGID),
+        FilmNotFoundException e = assertThrows(FilmNotFoundException.class,
+                () -> filmController.getFilmById(WRONGID, request),
                 "Метод getFilmById работает некорректно при попытке получить фильм с неверным id");
+        assertEquals(0, e.getStackTrace().length, "Исключение для ответа 404 не должно заполнять стек");
     }
 
     @Test
@@ -160,16 +246,16 @@ class FilmControllerTest {
         film.getLikes().add(20);
         film.setId(1);
         filmController.update(film);
-        assertTrue(filmController.getFilmById(1).getLikes().contains(10),
+        assertTrue(filmController.getFilmById(1, request).getLikes().contains(10),
                 "Метод getLikes работает некорректно при попытке получить список лайков");
-        assertEquals(2, filmController.getFilmById(1).getLikes().size(),
+        assertEquals(2, filmController.getFilmById(1, request).getLikes().size(),
                 "Метод getLikes работает некорректно при попытке получить список лайков");
     }
 
     @Test
     void getLikesWithWrongIdTest() {
         filmController.create(film);
-        assertThrows(FilmNotFoundException.class, () -> filmController.getFilmById(WRONGID).getLikes(),
+        assertThrows(FilmNotFoundException.class, () -> filmController.getFilmById(WRONGID, request).getLikes(),
                 "Метод getLikes работает некорректно");
     }
 
@@ -177,12 +263,12 @@ class FilmControllerTest {
     void addLikeWithCorrectAttributesTest() {
         userStorage.create(user);
         filmController.create(film);
-        assertEquals(0, filmController.getFilmById(1).getLikes().size(),
+        assertEquals(0, filmController.getFilmById(1, request).getLikes().size(),
                 "Метод addLike работает некорректно при добавлении лайков с неверным id");
         filmController.addLike(1, 1);
-        assertEquals(1, filmController.getFilmById(1).getLikes().size(),
+        assertEquals(1, filmController.getFilmById(1, request).getLikes().size(),
                 "Метод addLike работает некорректно");
-        assertTrue(filmController.getFilmById(1).getLikes().contains(userStorage.getUserById(1).getId()),
+        assertTrue(filmController.getFilmById(1, request).getLikes().contains(userStorage.getUserById(1).getId()),
                 "Метод addLike работает некорректно");
     }
 
@@ -210,11 +296,11 @@ class FilmControllerTest {
         userStorage.create(user);
         filmController.addLike(1, 1);
         filmController.addLike(1, 2);
-        assertEquals(2, filmController.getFilmById(1).getLikes().size());
+        assertEquals(2, filmController.getFilmById(1, request).getLikes().size());
         filmController.deleteLike(1, 2);
-        assertEquals(1, filmController.getFilmById(1).getLikes().size(),
+        assertEquals(1, filmController.getFilmById(1, request).getLikes().size(),
                 "Метод deleteLike работает некорректно. Размер списка лайков изменился не верно/не изменился");
-        assertTrue(filmController.getFilmById(1).getLikes().contains(userStorage.getUserById(1).getId()),
+        assertTrue(filmController.getFilmById(1, request).getLikes().contains(userStorage.getUserById(1).getId()),
                 "Метод deleteLike работает некорректно. Удален неверный лайк");
     }
 
@@ -242,13 +328,167 @@ class FilmControllerTest {
         filmController.addLike(3, 1);
         filmController.addLike(3, 2);
 
-        assertEquals(2, filmController.findMostPopularFilms(2).size(),
+        assertEquals(2, filmController.findMostPopularFilms(2, ALL, request).size(),
                 "Метод findMostPopularFilms работает некорректно. Неверное кол-во самых популярных фильмов");
-        assertEquals(filmController.getFilmById(3), filmController.findMostPopularFilms(1)
+        assertEquals(filmController.getFilmById(3, request), filmController.findMostPopularFilms(1, ALL, request)
                 .stream().iterator().next(), "Метод findMostPopularFilms работает некорректно. " +
                 "Неверно определен самый популярный фильм");
-        assertThrows(IncorrectParameterException.class, () -> filmController.findMostPopularFilms(0),
+        assertThrows(IncorrectParameterException.class, () -> filmController.findMostPopularFilms(0, ALL, request),
                 "Метод findMostPopularFilms работает некорректно если запрошенное кол-во популярных " +
                         "фильмов меньше или равно 0");
     }
-}
\ No newline at end of file
+
+    @Test
+    void filterFilmsTest() {
+        userStorage.create(user);
+        for (int i = 1; i <= 5; i++) {
+            film.setName("Фильм " + i);
+            film.setReleaseDate(LocalDate.of(2015 + i, 1, 1));
+            film.setDuration(60 + i * 10);
+            filmController.create(film);
+        }
+        filmController.addLike(4, 1);
+        FilmFilter filter = FilmFilter.builder()
+                .releasedFrom(LocalDate.of(2017, 1, 1))
+                .releasedTo(LocalDate.of(2020, 1, 1))
+                .maxDuration(100)
+                .build();
+        assertEquals(List.of(2, 3, 4), ids(filmController.getAllFilms(filter)),
+                "Метод getAllFilms работает некорректно с фильтром");
+        assertEquals(List.of(4), ids(filmController.getFilms(3, 10, filter)),
+                "Метод getFilms работает некорректно с фильтром");
+        assertEquals(List.of(4, 2), ids(filmController.findMostPopularFilms(2, filter, request)),
+                "Популярные фильмы должны выбираться только среди подходящих под фильтр");
+        assertEquals(List.of(4, 2, 3), ids(filmController.findMostPopularFilms(Integer.MAX_VALUE, filter, request)),
+                "Большое количество должно возвращать все подходящие фильмы");
+
+        film.setId(2);
+        film.setName("Фильм 2");
+        film.setDuration(200);
+        filmController.update(film);
+        assertEquals(List.of(3, 4), ids(filmController.getAllFilms(filter)),
+                "Индекс по продолжительности не обновлен после изменения фильма");
+        assertEquals(List.of(2), ids(filmController.getAllFilms(FilmFilter.builder().minDuration(150).build())),
+                "Индекс по продолжительности не обновлен после изменения фильма");
+        assertThrows(IncorrectParameterException.class, () -> filmController.getAllFilms(FilmFilter.builder()
+                        .minDuration(100)
+                        .maxDuration(90)
+                        .build()),
+                "Пустой диапазон продолжительности не должен приниматься");
+    }
+
+    @Test
+    void searchFilmsTest() {
+        filmController.create(film);
+        film.setName("Другой фильм");
+        filmController.create(film);
+        assertEquals(List.of(filmController.getFilmById(2, request)), filmController.searchFilms("друг", 10, request),
+                "Метод searchFilms работает некорректно");
+        assertThrows(IncorrectParameterException.class, () -> filmController.searchFilms(" ", 10, request),
+                "Пустой поисковый запрос не должен приниматься");
+    }
+
+    @Test
+    void findTrendingFilmsTest() {
+        userStorage.create(user);
+        user.setEmail("1@1.ru");
+        userStorage.create(user);
+
+        filmController.create(film);
+        film.setName("Фильм 2");
+        filmController.create(film);
+
+        filmController.addLike(2, 1);
+        filmController.addLike(2, 2);
+        filmController.addLike(1, 1);
+        filmController.deleteLike(1, 1);
+
+        List<Film> trendingFilms = filmController.findTrendingFilms("1h", 10);
+        assertEquals(1, trendingFilms.size(), "Удаленный лайк не должен учитываться в трендах");
+        assertEquals(filmController.getFilmById(2, request), trendingFilms.get(0), "Неверный фильм в трендах");
+        assertThrows(IncorrectParameterException.class, () -> filmController.findTrendingFilms("1y", 10),
+                "Неизвестное окно трендов не должно приниматься");
+        assertThrows(IncorrectParameterException.class, () -> filmController.findTrendingFilms("24h", 0),
+                "Количество фильмов в трендах должно быть положительным");
+    }
+
+    @Test
+    void findMostPopularFilmsOrderTest() {
+        userStorage.create(user);
+        user.setEmail("1@1.ru");
+        userStorage.create(user);
+
+        filmController.create(film);
+        film.setName("Фильм 2");
+        filmController.create(film);
+        film.setName("Фильм 3");
+        filmController.create(film);
+
+        filmController.addLike(2, 1);
+        filmController.addLike(3, 1);
+        filmController.addLike(3, 2);
+
+        List<Film> popularFilms = filmController.findMostPopularFilms(10, ALL, request);
+        assertEquals(3, popularFilms.size(),
+                "Метод findMostPopularFilms работает некорректно. Неверное кол-во самых популярных фильмов");
+        assertEquals(3, popularFilms.get(0).getId(), "Метод findMostPopularFilms работает некорректно");
+        assertEquals(2, popularFilms.get(1).getId(), "Метод findMostPopularFilms работает некорректно");
+        assertEquals(1, popularFilms.get(2).getId(), "Метод findMostPopularFilms работает некорректно");
+
+        filmController.deleteLike(3, 1);
+        filmController.deleteLike(3, 2);
+        popularFilms = filmController.findMostPopularFilms(2, ALL, request);
+        assertEquals(2, popularFilms.get(0).getId(),
+                "Метод findMostPopularFilms работает некорректно. Рейтинг не обновлен после удаления лайков");
+        assertEquals(1, popularFilms.get(1).getId(),
+                "Метод findMostPopularFilms работает некорректно. Неверный порядок фильмов с равным рейтингом");
+    }
+
+    @Test
+    void createAllTest() throws Exception {
+        String body = "[{\"name\":\"Фильм 1\",\"description\":\"Описание\",\"releaseDate\":\"2000-10-28\"," +
+                "\"duration\":60},{\"name\":\"\",\"description\":\"Описание\",\"releaseDate\":\"2000-10-28\"," +
+                "\"duration\":60},{\"name\":\"Фильм 1\",\"description\":\"Описание\"," +
+                "\"releaseDate\":\"2000-10-28\",\"duration\":60},{\"name\":\"Фильм 2\",\"description\":" +
+                "\"Описание\",\"releaseDate\":\"1800-10-28\",\"duration\":60}]";
+        List<BatchItemResult> results = filmController.createAll(stream(body));
+        assertEquals(4, results.size(), "Метод createAll работает некорректно. Неверное кол-во результатов");
+        assertEquals(BatchItemResult.success(0, 1), results.get(0), "Метод createAll работает некорректно");
+        assertEquals("Название фильма не может быть пустым", results.get(1).getError(),
+                "Метод createAll работает некорректно. Ошибка проверки не передана");
+        assertEquals("Фильм с названием Фильм 1 уже существует.", results.get(2).getError(),
+                "Метод createAll работает некорректно. Повторяющееся название не обнаружено");
+        assertEquals("Дата релиза не может быть раньше 28.12.1895", results.get(3).getError(),
+                "Метод createAll работает некорректно. Ошибка проверки не передана");
+        assertEquals(1, filmController.getAllFilms(ALL).size(), "Метод createAll работает некорректно");
+        assertThrows(IncorrectParameterException.class, () -> filmController.createAll(stream("[{\"name\":")),
+                "Метод createAll работает некорректно при некорректном JSON");
+    }
+
+    @Test
+    void addLikesTest() throws Exception {
+        userStorage.create(user);
+        filmController.create(film);
+        String body = "{\"filmId\":1,\"userId\":1}\n{\"filmId\":1,\"userId\":1}\n{\"filmId\":" + WRONGID +
+                ",\"userId\":1}\n{\"filmId\":1,\"userId\":" + WRONGID + "}";
+        List<BatchItemResult> results = filmController.addLikes(stream(body));
+        assertFalse(results.get(0).isFailed(), "Метод addLikes работает некорректно. Лайк не добавлен");
+        assertNull(results.get(0).getId(), "У лайка не должно быть id в результате");
+        assertEquals("Один пользователь не может ставить несколько лайков одному фильму", results.get(1).getError(),
+                "Метод addLikes работает некорректно. Повторный лайк не обнаружен");
+        assertEquals("Некорректный id " + WRONGID, results.get(2).getError(),
+                "Метод addLikes работает некорректно при несуществующем фильме");
+        assertEquals("Некорректный id " + WRONGID, results.get(3).getError(),
+                "Метод addLikes работает некорректно при несуществующем пользователе");
+        assertEquals(Set.of(1), filmController.getFilmById(1, request).getLikes(),
+                "Метод addLikes работает некорректно");
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveControllerTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmService filmService = new FilmService(filmStorage, userStorage);
+    private final ResponseCache responseCache = new ResponseCache();
+    private final StorageScheduler storageScheduler = new StorageScheduler(4, 1000);
+    private final WebTestClient client = WebTestClient
+            .bindToController(new ReactiveFilmController(filmStorage, filmService, responseCache, storageScheduler),
+                    new ReactiveUserController(userStorage, new UserService(userStorage), filmService, responseCache,
+                            storageScheduler))
+            .controllerAdvice(new ErrorHandler())
+            .httpMessageCodecs(ReactiveControllerTest::configureCodecs)
+            .configureClient()
+            .codecs(ReactiveControllerTest::configureCodecs)
+            .build();
+
+    @AfterEach
+    void afterEach() {
+        storageScheduler.destroy();
+    }
+
+    @Test
+    void filmsTest() {
+        client.post().uri("/films").bodyValue(film("Фильм")).exchange()
+                .expectStatus().isOk()
+                .expectBody(Film.class).value(film -> assertEquals(1, film.getId(), "Фильм не добавлен"));
+        client.post().uri("/users").bodyValue(user("example@example.ru")).exchange()
+                .expectStatus().isOk();
+        client.put().uri("/films/1/like/1").exchange()
+                .expectStatus().isOk();
+        client.put().uri("/films/1/like/1").exchange()
+                .expectStatus().isNotFound();
+        client.get().uri("/films/2").exchange()
+                .expectStatus().isNotFound();
+
+        String etag = client.get().uri("/films/1").exchange()
+                .expectStatus().isOk()
+                .expectBody(Film.class).value(film -> assertEquals(1, film.getLikes().size(), "Лайк не сохранен"))
+                .returnResult().getResponseHeaders().getETag();
+        client.get().uri("/films/1").ifNoneMatch(etag).exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/films/popular?count=1").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Film.class).hasSize(1);
+    }
+
+    @Test
+    void streamTest() {
+        List<Film> films = IntStream.rangeClosed(1, Pagination.MAX_PAGE_SIZE + 10)
+                .mapToObj(i -> film("Фильм " + i))
+                .collect(Collectors.toList());
+        client.post().uri("/films/batch").contentType(MediaType.APPLICATION_JSON).bodyValue(films).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchItemResult.class).hasSize(films.size());
+
+        List<Film> streamed = client.get().uri("/films").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(Film.class).getResponseBody().collectList().block();
+        assertNotNull(streamed, "Поток фильмов не получен");
+        assertEquals(films.size(), streamed.size(), "Поток должен содержать все страницы");
+        assertEquals(films.size(), streamed.get(streamed.size() - 1).getId(), "Нарушен порядок фильмов");
+        client.get().uri("/films").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Film.class).hasSize(films.size());
+        client.get().uri("/films?limit=0").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void friendsTest() {
+        for (int i = 1; i <= 3; i++) {
+            client.post().uri("/users").bodyValue(user("user" + i + "@example.ru")).exchange()
+                    .expectStatus().isOk();
+        }
+        client.put().uri("/users/1/friends/3").exchange().expectStatus().isOk();
+        client.put().uri("/users/2/friends/3").exchange().expectStatus().isOk();
+        client.get().uri("/users/1/friends/common/2").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class).value(users -> assertEquals(3, users.get(0).getId(),
+                        "Неверный список общих друзей"));
+        client.delete().uri("/users/1/friends/3").exchange().expectStatus().isOk();
+        client.get().uri("/users/1/friends").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class).hasSize(0);
+        client.get().uri("/users/9/friends").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private static void configureCodecs(CodecConfigurer codecs) {
+        codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(Pagination.MAPPER));
+        codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(Pagination.MAPPER));
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .login("Логин")
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build();
+    }
+}
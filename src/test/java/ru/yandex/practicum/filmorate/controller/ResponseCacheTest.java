@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    private final ResponseCache responseCache = new ResponseCache();
+
+    @Test
+    void singleFlightTest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> responseCache.get("key", 0, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "Ответ";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("Ответ", result.get(), "Ожидавшие запросы получили неверный ответ");
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get(), "Одинаковые одновременные запросы должны вычисляться один раз");
+        assertEquals("Ответ", responseCache.get("key", 0, () -> "Новый ответ"), "Ответ не закэширован");
+        assertEquals("Новый ответ", responseCache.get("key", 1, () -> "Новый ответ"),
+                "Ответ устаревшей версии не должен отдаваться");
+    }
+
+    @Test
+    void failureIsNotCachedTest() {
+        assertThrows(FilmNotFoundException.class, () -> responseCache.get("key", 0, () -> {
+            throw new FilmNotFoundException("Некорректный id 1");
+        }), "Исключение при вычислении ответа должно передаваться");
+        assertEquals("Ответ", responseCache.get("key", 0, () -> "Ответ"), "Ошибка не должна кэшироваться");
+    }
+
+    @Test
+    void notModifiedTest() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FilmController filmController = new FilmController(filmStorage, new FilmService(filmStorage, userStorage),
+                responseCache);
+        filmController.create(Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build());
+        userStorage.create(User.builder()
+                .email("example@example.ru")
+                .login("Логин")
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/1");
+        assertNotNull(filmController.getFilmById(1, new ServletWebRequest(request, response)), "Фильм не получен");
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag, "Ответ должен содержать ETag");
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/films/1");
+        conditional.addHeader("If-None-Match", etag);
+        response = new MockHttpServletResponse();
+        assertNull(filmController.getFilmById(1, new ServletWebRequest(conditional, response)),
+                "Неизмененный фильм не должен передаваться повторно");
+        assertEquals(304, response.getStatus(), "Для неизмененного фильма ожидается 304");
+
+        filmController.addLike(1, 1);
+        response = new MockHttpServletResponse();
+        Film film = filmController.getFilmById(1, new ServletWebRequest(conditional, response));
+        assertEquals(Set.of(1), film.getLikes(), "После лайка должен отдаваться новый ответ");
+        assertNotEquals(etag, response.getHeader("ETag"), "После лайка ETag должен измениться");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,11 +2,21 @@ package ru.yandex.practicum.filmorate.controller;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -17,7 +27,10 @@ class UserControllerTest {
     private User user;
     private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
     private final UserService userService = new UserService(userStorage);
-    private final UserController userController = new UserController(userStorage, userService);
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final UserController userController = new UserController(userStorage, userService,
+            new FilmService(filmStorage, userStorage), new ResponseCache());
+    private final WebRequest request = new ServletWebRequest(new MockHttpServletRequest());
 
     @BeforeEach
     public void beforeEach() {
@@ -36,8 +49,10 @@ class UserControllerTest {
         User testUser = userController.getUserById(userController.getLastId());
         System.out.println(testUser.getId());
         assertEquals(user, testUser, "Метод create работает некорректно. Пользователи не совпадают");
-        testUser.setLogin("Kjf");
-        assertNotEquals(user, testUser, "Метод create работает некорректно. Пользователи совпадают");
+        assertThrows(UnsupportedOperationException.class, () -> testUser.setLogin("Kjf"),
+                "Метод create работает некорректно. Сохраненного пользователя можно изменить");
+        assertThrows(UnsupportedOperationException.class, () -> testUser.getFriends().add(1),
+                "Метод create работает некорректно. Друзей сохраненного пользователя можно изменить");
         assertEquals(1, userController.getAllUsers().size(), "Метод create работает некорректно." +
                 "Неверное число пользователей");
     }
@@ -112,6 +127,36 @@ class UserControllerTest {
                 "Метод update работает некорректно при запросе пользователя с некорректным id ");
     }
 
+    @Test
+    void storedUserRoundTripTest() {
+        userController.create(user);
+        User storedUser = userController.getUserById(1);
+        assertEquals(storedUser, userController.update(storedUser),
+                "Метод update работает некорректно с сохраненным пользователем");
+        assertThrows(UserAlreadyExistException.class, () -> userController.create(storedUser),
+                "Метод create работает некорректно с сохраненным пользователем");
+        assertEquals(1, storedUser.getId(), "Сохраненный пользователь изменен при записи");
+    }
+
+    @Test
+    void updateEmailTest() {
+        userController.create(user);
+        user.setEmail("2@2.ru");
+        userController.create(user);
+        user.setId(1);
+        assertThrows(UserAlreadyExistException.class, () -> userController.update(user),
+                "Метод update работает некорректно. Сохранен пользователь с существующим e-mail");
+        user.setEmail("new@example.ru");
+        userController.update(user);
+        assertEquals("new@example.ru", userController.getUserById(1).getEmail(),
+                "Метод update работает некорректно. E-mail не изменился");
+        user.setEmail("example@example.ru");
+        user.setId(0);
+        userController.create(user);
+        assertEquals(3, userController.getAllUsers().size(),
+                "Метод update работает некорректно. Старый e-mail пользователя не освобожден");
+    }
+
     @Test
     void getAllUsersTest() {
         userController.create(user);
@@ -124,9 +169,25 @@ class UserControllerTest {
                 "Метод getAllUsers работает некорректно. Неверное число пользователей");
         assertEquals(testUser1, testUsers.get(0),
                 "Метод getAllUsers работает некорректно. Пользователи не совпадают");
-        testUser2.setName("nvfdksn");
-        assertNotEquals(testUser2, testUsers.get(1),
-                "Метод getAllUsers работает некорректно. Пользователи совпадают");
+        assertSame(testUser2, testUsers.get(1),
+                "Метод getAllUsers работает некорректно. Неизмененный пользователь скопирован повторно");
+        assertThrows(UnsupportedOperationException.class, () -> testUser2.setName("nvfdksn"),
+                "Метод getAllUsers работает некорректно. Сохраненного пользователя можно изменить");
+    }
+
+    @Test
+    void getUsersPageTest() {
+        for (int i = 0; i < 5; i++) {
+            user.setEmail(i + "@example.ru");
+            userController.create(user);
+        }
+        List<User> page = userController.getUsers(0, 3);
+        assertEquals(3, page.size(), "Метод getUsers работает некорректно. Неверный размер страницы");
+        assertEquals(1, page.get(0).getId(), "Метод getUsers работает некорректно. Неверное начало страницы");
+        assertEquals(0, userController.getUsers(5, 3).size(),
+                "Метод getUsers работает некорректно. Страница после последнего пользователя не пуста");
+        assertThrows(IncorrectParameterException.class, () -> userController.getUsers(-1, 3),
+                "Метод getUsers работает некорректно при отрицательном параметре after");
     }
 
     @Test
@@ -151,12 +212,12 @@ class UserControllerTest {
         user.setEmail("2@2.ru");
         userController.create(user);
         userController.addFriend(1, 2);
-        assertEquals(1, userController.getFriends(1).size(),
+        assertEquals(1, userController.getFriends(1, request).size(),
                 "Метод addFriend работает некорректно. Пользователь не добавлен в друзья");
-        assertEquals(1, userController.getFriends(2).size(),
+        assertEquals(1, userController.getFriends(2, request).size(),
                 "Метод addFriend работает некорректно. Пользователь не добавлен в друзья");
-        assertTrue(userController.getFriends(1).contains(userController.getUserById(2)));
-        assertTrue(userController.getFriends(1).contains(userController.getUserById(2)));
+        assertTrue(userController.getFriends(1, request).contains(userController.getUserById(2)));
+        assertTrue(userController.getFriends(1, request).contains(userController.getUserById(2)));
     }
 
     @Test
@@ -181,9 +242,9 @@ class UserControllerTest {
         userController.create(user);
         userController.addFriend(1, 2);
         userController.deleteFriend(1, 2);
-        assertEquals(0, userController.getFriends(1).size(),
+        assertEquals(0, userController.getFriends(1, request).size(),
                 "Метод deleteFriend работает некорректно. Пользователь не удален из друзей");
-        assertEquals(0, userController.getFriends(2).size(),
+        assertEquals(0, userController.getFriends(2, request).size(),
                 "Метод deleteFriend работает некорректно. Пользователь не удален из друзей");
     }
 
@@ -206,19 +267,17 @@ class UserControllerTest {
     @Test
     void getFriendsTest() {
         userController.create(user);
-        assertEquals(0, userController.getFriends(1).size(), "Метод getFriends работает некорректно");
+        assertEquals(0, userController.getFriends(1, request).size(), "Метод getFriends работает некорректно");
         user.setEmail("2@2.ru");
         userController.create(user);
         user.setEmail("3@3.ru");
         userController.create(user);
         userController.addFriend(1, 2);
         userController.addFriend(1, 3);
-        assertEquals(2, userController.getFriends(1).size(), "Метод getFriends работает некорректно");
-        Set<User> friends = new LinkedHashSet<>();
-        friends.add(userController.getUserById(2));
-        friends.add(userController.getUserById(3));
-        assertEquals(friends, userController.getFriends(1), "Метод getFriends работает некорректно");
-        assertThrows(UserNotFoundException.class, () -> userController.getFriends(WRONGID),
+        assertEquals(2, userController.getFriends(1, request).size(), "Метод getFriends работает некорректно");
+        List<User> friends = List.of(userController.getUserById(2), userController.getUserById(3));
+        assertEquals(friends, userController.getFriends(1, request), "Метод getFriends работает некорректно");
+        assertThrows(UserNotFoundException.class, () -> userController.getFriends(WRONGID, request),
                 "Метод getFriends работает некорректно при попытке получить список друзей " +
                         "пользователя с некорректным id");
     }
@@ -232,16 +291,113 @@ class UserControllerTest {
         userController.create(user);
         userController.addFriend(1, 3);
         userController.addFriend(2, 3);
-        assertEquals(1, userController.findCommonFriends(1, 2).size(),
+        assertEquals(1, userController.findCommonFriends(1, 2, request).size(),
                 "Метод findCommonFriends работает некорректно");
-        assertTrue(userController.findCommonFriends(1, 2).contains(userController.getUserById(3)),
+        assertTrue(userController.findCommonFriends(1, 2, request).contains(userController.getUserById(3)),
                 "Метод findCommonFriends работает некорректно. Общие друзья найдены не верно/не найдены");
-        assertThrows(UserNotFoundException.class, () -> userController.findCommonFriends(WRONGID, WRONGID + 1),
+        assertThrows(UserNotFoundException.class, () -> userController.findCommonFriends(WRONGID, WRONGID + 1, request),
                 "Метод findCommonFriends работает некорректно при попытке вызвать " +
                         "пользователей с несуществующими id");
         assertThrows(UserNotFoundException.class, () ->
-                        userController.findCommonFriends(WRONGID * (-1), (WRONGID + 1) * (-1)),
+                        userController.findCommonFriends(WRONGID * (-1), (WRONGID + 1) * (-1), request),
                 "Метод findCommonFriends работает некорректно при попытке вызвать " +
                         "пользователей с несуществующими id");
     }
-}
\ No newline at end of file
+
+    @Test
+    void createAllAndAddFriendsTest() throws Exception {
+        String users = "[{\"email\":\"1@example.ru\",\"login\":\"one\"},{\"email\":\"2@example.ru\"," +
+                "\"login\":\"two\",\"name\":\"Второй\"},{\"email\":\"1@example.ru\",\"login\":\"three\"}," +
+                "{\"email\":\"4@example.ru\",\"login\":\"with space\"}]";
+        List<BatchItemResult> results = userController.createAll(stream(users));
+        assertEquals(List.of(1, 2), List.of(results.get(0).getId(), results.get(1).getId()),
+                "Метод createAll работает некорректно. Неверные id");
+        assertEquals("one", userController.getUserById(1).getName(),
+                "Метод createAll работает некорректно. Пустое имя не заменено логином");
+        assertEquals("Пользователь с электронной почтой 1@example.ru уже зарегистрирован.",
+                results.get(2).getError(), "Метод createAll работает некорректно. Повторяющаяся почта не обнаружена");
+        assertEquals("Логин пользователя не может содержать пробелы", results.get(3).getError(),
+                "Метод createAll работает некорректно. Ошибка проверки не передана");
+
+        String friends = "[{\"userId\":1,\"friendId\":2},{\"userId\":2,\"friendId\":1}," +
+                "{\"userId\":1,\"friendId\":" + WRONGID + "}]";
+        results = userController.addFriends(stream(friends));
+        assertFalse(results.get(0).isFailed(), "Метод addFriends работает некорректно. Друг не добавлен");
+        assertNull(results.get(0).getId(), "У дружеской связи не должно быть id в результате");
+        assertEquals("Этот пользователь уже добавлен в друзья.", results.get(1).getError(),
+                "Метод addFriends работает некорректно. Повторная дружба не обнаружена");
+        assertEquals("Некорректный id " + WRONGID, results.get(2).getError(),
+                "Метод addFriends работает некорректно при несуществующем пользователе");
+        assertEquals(Set.of(2), userController.getUserById(1).getFriends(), "Метод addFriends работает некорректно");
+        assertEquals(Set.of(1), userController.getUserById(2).getFriends(), "Метод addFriends работает некорректно");
+    }
+
+    @Test
+    void findRecommendationsTest() {
+        for (int i = 1; i <= 6; i++) {
+            user.setEmail(i + "@example.ru");
+            userController.create(user);
+        }
+        int[][] friendships = {{1, 2}, {1, 3}, {1, 4}, {2, 5}, {3, 5}, {4, 5}, {2, 6}, {3, 4}};
+        for (int[] friendship : friendships) {
+            userController.addFriend(friendship[0], friendship[1]);
+        }
+        assertEquals(List.of(5, 6), ids(userController.findRecommendations(1, 10)),
+                "Метод findRecommendations работает некорректно. Неверные рекомендации");
+        assertEquals(List.of(5), ids(userController.findRecommendations(1, 1)),
+                "Метод findRecommendations работает некорректно при ограничении количества");
+        assertEquals(List.of(1, 5), ids(userController.findRecommendations(6, 10)),
+                "Метод findRecommendations работает некорректно при равном числе общих друзей");
+        assertThrows(IncorrectParameterException.class, () -> userController.findRecommendations(1, 0),
+                "Метод findRecommendations работает некорректно при неверном количестве");
+        assertThrows(UserNotFoundException.class, () -> userController.findRecommendations(WRONGID, 10),
+                "Метод findRecommendations работает некорректно при несуществующем пользователе");
+    }
+
+    @Test
+    void findRecommendedFilmsTest() {
+        for (int i = 1; i <= 4; i++) {
+            user.setEmail(i + "@example.ru");
+            userController.create(user);
+            filmStorage.create(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 10, 28))
+                    .duration(60)
+                    .build());
+        }
+        int[][] likes = {{1, 1}, {1, 2}, {2, 1}, {2, 2}, {2, 3}, {3, 1}, {3, 4}, {4, 4}};
+        for (int[] like : likes) {
+            filmStorage.addLike(like[1], like[0]);
+        }
+        assertEquals(List.of(3, 4), filmIds(userController.findRecommendedFilms(1, 10)),
+                "Метод findRecommendedFilms работает некорректно. Неверные рекомендации");
+        assertEquals(List.of(1), filmIds(userController.findRecommendedFilms(4, 10)),
+                "Метод findRecommendedFilms работает некорректно. Неверные рекомендации");
+        filmStorage.removeLike(3, 2);
+        assertEquals(List.of(4), filmIds(userController.findRecommendedFilms(1, 10)),
+                "Метод findRecommendedFilms работает некорректно после удаления лайка");
+        assertThrows(UserNotFoundException.class, () -> userController.findRecommendedFilms(WRONGID, 10),
+                "Метод findRecommendedFilms работает некорректно при несуществующем пользователе");
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Integer> filmIds(List<Film> films) {
+        List<Integer> ids = new ArrayList<>();
+        for (Film film : films) {
+            ids.add(film.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        List<Integer> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void storageTimerTest() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new InMemoryFilmStorage());
+        factory.addAspect(new OperationMetricsAspect(registry));
+        FilmStorage filmStorage = factory.getProxy();
+
+        filmStorage.create(film("Фильм"));
+        filmStorage.getFilmById(1);
+        filmStorage.getFilmById(1);
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.getFilmById(2));
+
+        assertEquals(1, registry.get("filmorate.storage").tag("method", "create").timer().count(),
+                "Вызов create не замерен");
+        assertEquals(2, registry.get("filmorate.storage").tags("method", "getFilmById", "exception", "none")
+                .timer().count(), "Успешные вызовы getFilmById не замерены");
+        assertEquals(1, registry.get("filmorate.storage")
+                .tags("method", "getFilmById", "exception", "FilmNotFoundException").timer().count(),
+                "Неудачный вызов getFilmById не замерен");
+        assertEquals("InMemoryFilmStorage", registry.get("filmorate.storage").timers().iterator().next()
+                .getId().getTag("class"), "Неверный тег класса");
+    }
+
+    @Test
+    void storageGaugesTest() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 10; i++) {
+            filmStorage.create(film("Фильм " + i));
+            userStorage.create(User.builder()
+                    .email("user" + i + "@example.ru")
+                    .login("Логин" + i)
+                    .birthday(LocalDate.of(2000, 10, 15))
+                    .build());
+        }
+        for (int userId = 1; userId <= 10; userId++) {
+            filmStorage.addLike(1, userId);
+        }
+        filmStorage.addLike(2, 1);
+        userStorage.link(1, 2);
+        new StorageMetrics(filmStorage, userStorage).bindTo(registry);
+
+        assertEquals(10, registry.get("filmorate.films").gauge().value(), "Неверное число фильмов");
+        assertEquals(10, registry.get("filmorate.users").gauge().value(), "Неверное число пользователей");
+        assertEquals(11, registry.get("filmorate.film.likes.total").gauge().value(), "Неверное число лайков");
+        assertEquals(0, registry.get("filmorate.film.likes").tag("quantile", "0.5").gauge().value(),
+                "Неверная медиана лайков");
+        assertEquals(10, registry.get("filmorate.film.likes").tag("quantile", "1.0").gauge().value(),
+                "Неверный максимум лайков");
+        assertEquals(1, registry.get("filmorate.user.friends").tag("quantile", "1.0").gauge().value(),
+                "Неверный максимум друзей");
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+}
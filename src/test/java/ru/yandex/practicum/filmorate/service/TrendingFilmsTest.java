@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingFilmsTest {
+    private final MutableClock clock = new MutableClock(Instant.parse("2023-01-01T00:00:00Z"));
+    private final TrendingFilms trendingFilms = new TrendingFilms(clock);
+
+    @Test
+    void windowsTest() {
+        like(1, 1, 2, 3);
+        clock.advance(Duration.ofHours(2));
+        like(2, 1, 2);
+        assertArrayEquals(new int[]{2}, top(TrendingFilms.Window.HOUR), "Неверные тренды за час");
+        assertArrayEquals(new int[]{1, 2}, top(TrendingFilms.Window.DAY), "Неверные тренды за сутки");
+
+        clock.advance(Duration.ofDays(1));
+        like(3, 1);
+        assertArrayEquals(new int[]{3}, top(TrendingFilms.Window.DAY), "Старые лайки не выпали из окна суток");
+        assertArrayEquals(new int[]{1, 2, 3}, top(TrendingFilms.Window.WEEK), "Неверные тренды за неделю");
+
+        clock.advance(Duration.ofDays(7));
+        assertArrayEquals(new int[0], top(TrendingFilms.Window.WEEK), "Старые лайки не выпали из окна недели");
+    }
+
+    @Test
+    void removeLikeTest() {
+        like(1, 1, 2);
+        like(2, 1);
+        assertArrayEquals(new int[]{1, 2}, top(TrendingFilms.Window.HOUR), "Неверные тренды за час");
+        trendingFilms.removeLike(1, 1);
+        trendingFilms.removeLike(1, 2);
+        trendingFilms.removeLike(1, 2);
+        assertArrayEquals(new int[]{2}, top(TrendingFilms.Window.HOUR), "Удаленные лайки не учтены");
+        assertArrayEquals(new int[]{2}, top(TrendingFilms.Window.WEEK), "Удаленные лайки не учтены");
+    }
+
+    @Test
+    void manyFilmsTest() {
+        for (int filmId = 1; filmId <= 1000; filmId++) {
+            for (int userId = 1; userId <= filmId % 50; userId++) {
+                trendingFilms.addLike(filmId, userId);
+            }
+        }
+        int[] top = trendingFilms.getTrendingFilms(TrendingFilms.Window.DAY, 3);
+        assertArrayEquals(new int[]{49, 99, 149}, top, "Неверные тренды после перестройки рейтинга");
+
+        clock.advance(Duration.ofSeconds(10));
+        like(1000, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26,
+                27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50);
+        trendingFilms.removeLike(49, 1);
+        top = trendingFilms.getTrendingFilms(TrendingFilms.Window.DAY, 3);
+        assertArrayEquals(new int[]{1000, 99, 149}, top, "Изменения после перестройки рейтинга не учтены");
+    }
+
+    @Test
+    void windowParseTest() {
+        assertEquals(TrendingFilms.Window.DAY, TrendingFilms.Window.of("24h"), "Окно разобрано неверно");
+        assertThrows(IncorrectParameterException.class, () -> TrendingFilms.Window.of("2h"),
+                "Неизвестное окно не должно приниматься");
+    }
+
+    private void like(int filmId, int... userIds) {
+        for (int userId : userIds) {
+            trendingFilms.addLike(filmId, userId);
+        }
+    }
+
+    private int[] top(TrendingFilms.Window window) {
+        return trendingFilms.getTrendingFilms(window, 10);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
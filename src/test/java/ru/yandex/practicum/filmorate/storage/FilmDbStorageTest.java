@@ -0,0 +1,225 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmDbStorageTest {
+    private EmbeddedDatabase database;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("db/schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        filmStorage = new FilmDbStorage(jdbcTemplate);
+        userStorage = new UserDbStorage(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void createAndGetTest() {
+        Film film = filmStorage.create(film("Фильм"));
+        assertEquals(1, film.getId(), "Фильму присвоен неверный id");
+        Film storedFilm = filmStorage.getFilmById(1);
+        assertEquals("Фильм", storedFilm.getName(), "Фильм сохранен неверно");
+        assertEquals(LocalDate.of(2000, 10, 28), storedFilm.getReleaseDate(), "Фильм сохранен неверно");
+        assertTrue(storedFilm.getLikes().isEmpty(), "У нового фильма не должно быть лайков");
+        assertEquals(1, filmStorage.getLastId(), "Неверный последний id");
+        assertThrows(FilmAlreadyExistException.class, () -> filmStorage.create(film("Фильм")),
+                "Фильм с повторяющимся названием не должен сохраняться");
+        assertThrows(IncorrectParameterException.class, () -> filmStorage.create(film(" ")),
+                "Фильм с пустым названием не должен сохраняться");
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.getFilmById(2),
+                "Несуществующий фильм не должен находиться");
+        assertEquals(Optional.of(storedFilm), filmStorage.findFilmById(1), "Фильм не найден");
+        assertTrue(filmStorage.findFilmById(2).isEmpty(), "Несуществующий фильм не должен находиться");
+        assertTrue(filmStorage.containsFilm(1), "Фильм не найден");
+        assertFalse(filmStorage.containsFilm(0), "Несуществующий фильм не должен находиться");
+    }
+
+    @Test
+    void updateTest() {
+        createUsers(3);
+        filmStorage.create(film("Фильм"));
+        filmStorage.create(film("Другой фильм"));
+        filmStorage.addLike(1, 1);
+        Film film = film("Новое название");
+        film.setId(1);
+        film.setLikes(Set.of(2, 3));
+        assertEquals(Set.of(2, 3), filmStorage.update(film).getLikes(), "Лайки фильма не обновлены");
+        List<Integer> likedSince = new ArrayList<>();
+        filmStorage.forEachLikeSince(Instant.now().minus(Duration.ofHours(1)),
+                (filmId, userId, likedAt) -> likedSince.add(userId));
+        assertEquals(Set.of(2, 3), new HashSet<>(likedSince), "Лайки с временем добавления получены неверно");
+        assertEquals("Новое название", filmStorage.getFilmById(1).getName(), "Название фильма не обновлено");
+
+        Film duplicate = film("Другой фильм");
+        duplicate.setId(1);
+        assertThrows(FilmAlreadyExistException.class, () -> filmStorage.update(duplicate),
+                "Название фильма не должно повторяться");
+        Film missing = film("Фильм");
+        missing.setId(5);
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.update(missing),
+                "Несуществующий фильм не должен обновляться");
+    }
+
+    @Test
+    void likesAndPopularTest() {
+        createUsers(3);
+        for (int i = 1; i <= 4; i++) {
+            filmStorage.create(film("Фильм " + i));
+        }
+        assertTrue(filmStorage.addLike(3, 1), "Лайк не добавлен");
+        assertFalse(filmStorage.addLike(3, 1), "Повторный лайк не должен добавляться");
+        filmStorage.addLike(3, 2);
+        filmStorage.addLike(2, 3);
+        filmStorage.addLike(4, 3);
+        assertTrue(filmStorage.removeLike(4, 3), "Лайк не удален");
+        assertFalse(filmStorage.removeLike(4, 3), "Повторное удаление лайка должно возвращать false");
+
+        assertEquals(Set.of(1, 2), filmStorage.getLikes(3), "Неверный список лайков");
+        List<Integer> popularIds = filmStorage.getPopularFilms(3).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(3, 2, 1), popularIds, "Неверный порядок популярных фильмов");
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.addLike(9, 1),
+                "Лайк несуществующему фильму не должен добавляться");
+    }
+
+    @Test
+    void pageTest() {
+        for (int i = 1; i <= 5; i++) {
+            filmStorage.create(film("Фильм " + i));
+        }
+        assertEquals(5, filmStorage.getAllFilms().size(), "Неверное кол-во фильмов");
+        List<Integer> pageIds = filmStorage.getFilms(2, 2).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(3, 4), pageIds, "Неверная страница фильмов");
+        assertTrue(filmStorage.getFilms(5, 10).isEmpty(), "Страница после последнего фильма должна быть пустой");
+    }
+
+    @Test
+    void batchTest() {
+        createUsers(2);
+        filmStorage.create(film("Фильм"));
+        List<BatchItemResult> results = filmStorage.createAll(List.of(film("Фильм"), film("Фильм 2"), film(""),
+                film("Фильм 2"), film("Фильм 3")));
+        assertTrue(results.get(0).isFailed(), "Повторяющееся название не обнаружено");
+        assertEquals(2, results.get(1).getId(), "Неверный id фильма из пакета");
+        assertEquals("Название фильма не может быть пустым", results.get(2).getError(), "Ошибка проверки не передана");
+        assertTrue(results.get(3).isFailed(), "Повторяющееся название внутри пакета не обнаружено");
+        assertEquals("Фильм 3", filmStorage.getFilmById(results.get(4).getId()).getName(),
+                "Фильм из пакета сохранен неверно");
+
+        boolean[] added = filmStorage.addLikes(List.of(new Like(1, 1), new Like(1, 2), new Like(1, 1)));
+        assertArrayEquals(new boolean[]{true, true, false}, added, "Неверный результат пакетного добавления лайков");
+        assertEquals(Set.of(1, 2), filmStorage.getLikes(1), "Лайки из пакета сохранены неверно");
+    }
+
+    @Test
+    void recommendedFilmsTest() {
+        createUsers(4);
+        for (int i = 1; i <= 4; i++) {
+            filmStorage.create(film("Фильм " + i));
+        }
+        int[][] likes = {{1, 1}, {1, 2}, {2, 1}, {2, 2}, {2, 3}, {3, 1}, {3, 4}, {4, 4}};
+        for (int[] like : likes) {
+            filmStorage.addLike(like[1], like[0]);
+        }
+        assertEquals(List.of(3, 4), filmStorage.getRecommendedFilms(1, 10), "Неверные рекомендации фильмов");
+        assertEquals(List.of(3), filmStorage.getRecommendedFilms(1, 1), "Неверные рекомендации фильмов");
+        assertEquals(List.of(1), filmStorage.getRecommendedFilms(4, 10), "Неверные рекомендации фильмов");
+    }
+
+    @Test
+    void filterTest() {
+        createUsers(1);
+        for (int i = 1; i <= 5; i++) {
+            Film film = film("Фильм " + i);
+            film.setReleaseDate(LocalDate.of(2015 + i, 1, 1));
+            film.setDuration(60 + i * 10);
+            filmStorage.create(film);
+        }
+        filmStorage.addLike(4, 1);
+        FilmFilter filter = FilmFilter.builder()
+                .releasedFrom(LocalDate.of(2017, 1, 1))
+                .maxDuration(100)
+                .build();
+        List<Integer> pageIds = filmStorage.getFilms(filter, 2, 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(3, 4), pageIds, "Неверная страница фильмов с фильтром");
+        List<Integer> popularIds = filmStorage.getPopularFilms(filter, 2).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(4, 2), popularIds, "Неверные популярные фильмы с фильтром");
+    }
+
+    @Test
+    void searchTest() {
+        filmStorage.create(film("Ночной дозор"));
+        Film film = film("Дневной дозор");
+        film.setDescription("Продолжение фильма Ночной дозор");
+        filmStorage.create(film);
+        List<Integer> foundIds = filmStorage.searchFilms("НОЧНОЙ доз", 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(1, 2), foundIds, "Совпадение в названии должно быть выше, чем в описании");
+        assertTrue(filmStorage.searchFilms("вечерний", 10).isEmpty(), "Лишние фильмы найдены");
+        assertTrue(filmStorage.searchFilms("!", 10).isEmpty(), "Запрос без слов не должен ничего находить");
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            userStorage.create(User.builder()
+                    .email("user" + i + "@example.ru")
+                    .login("login" + i)
+                    .birthday(LocalDate.of(2000, 10, 15))
+                    .build());
+        }
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание фильма")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+
+    @Test
+    void tokensTest() {
+        assertEquals(List.of("ежик", "в", "тумане", "hedgehog", "2"),
+                FilmSearchIndex.tokens("Ёжик в ТУМАНЕ (Hedgehog-2)"), "Текст разбит на слова неверно");
+        assertTrue(FilmSearchIndex.tokens(" ,.! ").isEmpty(), "В тексте без букв не должно быть слов");
+    }
+
+    @Test
+    void rankingTest() {
+        filmStorage.create(film("Ночной дозор", "Фильм о противостоянии Света и Тьмы"));
+        filmStorage.create(film("Дневной дозор", "Продолжение фильма Ночной дозор"));
+        filmStorage.create(film("Ирония судьбы", "Новогодняя комедия"));
+
+        assertEquals(List.of(1, 2), search("ночной"), "Совпадение в названии должно быть выше, чем в описании");
+        assertEquals(List.of(1, 2), search("ноч доз"), "Каждое слово запроса должно искаться по префиксу");
+        assertEquals(List.of(2), search("дневной ночной"), "Фильм должен содержать все слова запроса");
+        assertEquals(List.of(3), search("ИРОНИЯ"), "Поиск не должен зависеть от регистра");
+        assertTrue(search("звездные войны").isEmpty(), "Лишние фильмы найдены");
+    }
+
+    @Test
+    void updateTest() {
+        filmStorage.create(film("Матрица", "Фантастика"));
+        Film film = film("The Matrix", "Science fiction");
+        film.setId(1);
+        filmStorage.update(film);
+        assertTrue(search("матрица").isEmpty(), "Старое название должно удаляться из индекса");
+        assertEquals(List.of(1), search("matr"), "Новое название не попало в индекс");
+        assertEquals(List.of(1), search("science"), "Новое описание не попало в индекс");
+    }
+
+    private List<Integer> search(String query) {
+        return filmStorage.searchFilms(query, 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static Film film(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+}
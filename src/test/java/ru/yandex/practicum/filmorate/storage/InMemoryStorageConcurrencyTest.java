@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeQueue;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTest {
+    static final int THREADS = 16;
+    static final int USERS = 60;
+    static final int FILMS = 20;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FilmService filmService = new FilmService(filmStorage, userStorage);
+    private final UserService userService = new UserService(userStorage);
+
+    @Test
+    void concurrentCreateTest() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            int number = i;
+            tasks.add(() -> userStorage.create(user(number)).getId());
+            tasks.add(() -> filmStorage.create(film(number)).getId());
+        }
+        Set<Integer> userIds = new HashSet<>();
+        Set<Integer> filmIds = new HashSet<>();
+        List<Future<Integer>> results = runAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            (i % 2 == 0 ? userIds : filmIds).add(results.get(i).get());
+        }
+        assertEquals(USERS, userIds.size(), "Выданы повторяющиеся id пользователей");
+        assertEquals(USERS, filmIds.size(), "Выданы повторяющиеся id фильмов");
+        assertEquals(USERS, userStorage.getAllUsers().size(), "Неверное число пользователей");
+        assertEquals(USERS, filmStorage.getAllFilms().size(), "Неверное число фильмов");
+    }
+
+    @Test
+    void concurrentLikesTest() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.create(user(i));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.create(film(i));
+        }
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            for (int userId = 1; userId <= USERS; userId++) {
+                int film = filmId;
+                int user = userId;
+                tasks.add(() -> {
+                    filmService.addLike(film, user);
+                    return film;
+                });
+            }
+        }
+        Collections.shuffle(tasks, new Random(42));
+        for (Future<Integer> result : runAll(tasks)) {
+            result.get();
+        }
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            assertEquals(USERS, filmStorage.getFilmById(filmId).getLikes().size(),
+                    "Потеряны лайки фильма с id " + filmId);
+        }
+        List<Film> popularFilms = filmService.findMostPopularFilms(FILMS);
+        assertEquals(FILMS, popularFilms.size(), "Неверное кол-во самых популярных фильмов");
+        for (Film film : popularFilms) {
+            assertEquals(USERS, film.getLikes().size(), "Рейтинг фильмов не согласован с лайками");
+        }
+    }
+
+    @Test
+    void concurrentAsyncLikesTest() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.create(user(i));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.create(film(i));
+        }
+        LikeQueue likeQueue = new LikeQueue(filmStorage, true, 16, 8);
+        likeQueue.start();
+        FilmService asyncFilmService = new FilmService(filmStorage, userStorage, likeQueue);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            for (int userId = 1; userId <= USERS; userId++) {
+                int film = filmId;
+                int user = userId;
+                tasks.add(() -> {
+                    asyncFilmService.addLike(film, user);
+                    assertTrue(asyncFilmService.getFilmById(film).getLikes().contains(user),
+                            "Пользователь не видит свой лайк");
+                    assertThrows(FilmAlreadyExistException.class, () -> asyncFilmService.addLike(film, user),
+                            "Повторный лайк не обнаружен");
+                    return film;
+                });
+            }
+        }
+        Collections.shuffle(tasks, new Random(42));
+        try {
+            for (Future<Integer> result : runAll(tasks)) {
+                result.get();
+            }
+            for (Film film : asyncFilmService.findMostPopularFilms(FILMS)) {
+                assertEquals(USERS, film.getLikes().size(), "Потеряны лайки фильма с id " + film.getId());
+            }
+        } finally {
+            likeQueue.close();
+        }
+        int lateUserId = userStorage.create(user(USERS)).getId();
+        asyncFilmService.addLike(1, lateUserId);
+        assertTrue(filmStorage.hasLike(1, lateUserId), "После остановки очереди лайк должен записываться сразу");
+    }
+
+    @Test
+    void asyncBatchLikesTest() {
+        for (int i = 0; i < 3; i++) {
+            userStorage.create(user(i));
+            filmStorage.create(film(i));
+        }
+        LikeQueue likeQueue = new LikeQueue(filmStorage, true, 16, 8);
+        likeQueue.start();
+        FilmService asyncFilmService = new FilmService(filmStorage, userStorage, likeQueue);
+        try {
+            asyncFilmService.addLike(1, 1);
+            List<BatchItemResult> results = asyncFilmService.addLikes(List.of(new Like(1, 1), new Like(1, 2),
+                    new Like(2, 3), new Like(2, 3)));
+            assertEquals(List.of(true, false, false, true), results.stream()
+                    .map(BatchItemResult::isFailed)
+                    .collect(Collectors.toList()), "Пакет лайков не согласован с очередью");
+            assertEquals(Set.of(1, 2), asyncFilmService.getFilmById(1).getLikes(), "Лайки пакета не записаны");
+            assertEquals(Set.of(3), asyncFilmService.getFilmById(2).getLikes(), "Лайки пакета не записаны");
+        } finally {
+            likeQueue.close();
+        }
+    }
+
+    @Test
+    void failedLikeBatchIsRetriedTest() {
+        InMemoryFilmStorage failingStorage = new InMemoryFilmStorage() {
+            private boolean failed;
+
+            @Override
+            public boolean[] addLikes(List<Like> likes) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("Сбой записи");
+                }
+                return super.addLikes(likes);
+            }
+        };
+        userStorage.create(user(1));
+        failingStorage.create(film(1));
+        LikeQueue likeQueue = new LikeQueue(failingStorage, true, 16, 8);
+        likeQueue.start();
+        FilmService asyncFilmService = new FilmService(failingStorage, userStorage, likeQueue);
+        try {
+            asyncFilmService.addLike(1, 1);
+            assertEquals(Set.of(1), asyncFilmService.getFilmById(1).getLikes(), "Подтвержденный лайк потерян");
+        } finally {
+            likeQueue.close();
+        }
+    }
+
+    @Test
+    void concurrentFriendsTest() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.create(user(i));
+        }
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int friendId = userId + 1; friendId <= USERS; friendId++) {
+                int user = userId;
+                int friend = friendId;
+                tasks.add(() -> {
+                    userService.addFriend(user, friend);
+                    return user;
+                });
+            }
+        }
+        Collections.shuffle(tasks, new Random(42));
+        for (Future<Integer> result : runAll(tasks)) {
+            result.get();
+        }
+        for (int userId = 1; userId <= USERS; userId++) {
+            assertEquals(USERS - 1, userStorage.getUserById(userId).getFriends().size(),
+                    "Потеряны друзья пользователя с id " + userId);
+        }
+    }
+
+    @Test
+    void concurrentLinkUnlinkTest() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            userStorage.create(user(i));
+        }
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < USERS * USERS; i++) {
+            int user = random.nextInt(USERS) + 1;
+            int friend = random.nextInt(USERS) + 1;
+            boolean link = random.nextBoolean();
+            tasks.add(() -> {
+                if (link) {
+                    userStorage.link(user, friend);
+                } else {
+                    userStorage.unlink(friend, user);
+                }
+                return user;
+            });
+        }
+        for (Future<Integer> result : runAll(tasks)) {
+            result.get();
+        }
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (Integer friendId : userStorage.getUserById(userId).getFriends()) {
+                assertTrue(userStorage.getUserById(friendId).getFriends().contains(userId),
+                        "Дружба пользователей с id " + userId + " и " + friendId + " односторонняя");
+            }
+        }
+    }
+
+    private List<Future<Integer>> runAll(List<Callable<Integer>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            return executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .email("user" + number + "@example.ru")
+                .login("login" + number)
+                .name("Имя " + number)
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build();
+    }
+
+    private static Film film(int number) {
+        return Film.builder()
+                .name("Фильм " + number)
+                .description("Описание фильма")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashSetTest {
+
+    @Test
+    void randomOperationsTest() {
+        IntHashSet intSet = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), intSet.remove(value), "Метод remove работает некорректно");
+            } else {
+                assertEquals(expected.add(value), intSet.add(value), "Метод add работает некорректно");
+            }
+        }
+        assertEquals(expected.size(), intSet.size(), "Неверный размер множества");
+        for (int value = -100; value < 4_900; value++) {
+            assertEquals(expected.contains(value), intSet.contains(value), "Метод contains работает некорректно");
+        }
+        assertEquals(expected, intSet, "Множества не совпадают");
+        assertEquals(intSet, expected, "Множества не совпадают");
+        assertEquals(expected.hashCode(), intSet.hashCode(), "Метод hashCode работает некорректно");
+    }
+
+    @Test
+    void copyTest() {
+        IntHashSet intSet = new IntHashSet(List.of(1, 2, 3));
+        IntHashSet copy = new IntHashSet(intSet);
+        copy.add(4);
+        assertEquals(3, intSet.size(), "Копия множества не должна изменять оригинал");
+        assertEquals(Set.of(1, 2, 3, 4), copy, "Копия множества некорректна");
+        assertArrayEquals(new int[]{1, 2, 3}, Arrays.stream(intSet.toIntArray()).sorted().toArray());
+    }
+
+    @Test
+    void intersectTest() {
+        IntHashSet small = new IntHashSet(List.of(1, 5, 9, 0));
+        IntHashSet large = new IntHashSet();
+        for (int i = 0; i < 1_000; i += 3) {
+            large.add(i);
+        }
+        assertEquals(Set.of(0, 9), small.intersect(large), "Метод intersect работает некорректно");
+        assertEquals(Set.of(0, 9), large.intersect(small), "Метод intersect работает некорректно");
+        assertTrue(small.intersect(new IntHashSet()).isEmpty(), "Метод intersect работает некорректно");
+    }
+
+    @Test
+    void serializationTest() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        IntHashSet intSet = new IntHashSet(List.of(7, 0, 100_000));
+        assertEquals("[7,0,100000]", mapper.writeValueAsString(intSet), "Множество сериализуется некорректно");
+    }
+
+    @Test
+    void insertionOrderTest() {
+        IntHashSet intSet = new IntHashSet();
+        List<Integer> expected = new ArrayList<>();
+        for (int value = 1_000; value > 0; value -= 7) {
+            intSet.add(value);
+            expected.add(value);
+        }
+        intSet.add(0);
+        intSet.remove(993);
+        intSet.remove(0);
+        intSet.add(0);
+        expected.remove(Integer.valueOf(993));
+        expected.add(0);
+        assertEquals(expected, new ArrayList<>(intSet), "Нарушен порядок добавления");
+        assertEquals(expected, new ArrayList<>(new IntHashSet(intSet)), "Копия нарушает порядок добавления");
+        int[] prefix = new int[3];
+        assertEquals(3, intSet.copyTo(prefix, 0, 3), "Неверное число скопированных значений");
+        assertArrayEquals(new int[]{1_000, 986, 979}, prefix, "Метод copyTo нарушает порядок добавления");
+    }
+
+    @Test
+    void zeroAtLoadFactorBoundaryTest() {
+        IntHashSet intSet = new IntHashSet();
+        List<Integer> expected = new ArrayList<>();
+        for (int value = 1; value <= 6; value++) {
+            intSet.add(value);
+            expected.add(value);
+        }
+        assertTrue(intSet.add(0), "Ноль не добавлен");
+        expected.add(0);
+        for (int value = 7; value <= 100; value++) {
+            assertTrue(intSet.add(value), "Значение после нуля не добавлено");
+            expected.add(value);
+        }
+        assertEquals(expected, new ArrayList<>(intSet), "Множество с нулем заполнено неверно");
+        assertTrue(intSet.remove(0), "Ноль не удален");
+        assertTrue(intSet.add(0), "Ноль не добавлен повторно");
+        assertEquals(101, intSet.size(), "Неверный размер множества");
+    }
+
+    @Test
+    void snapshotTest() {
+        IntHashSet intSet = new IntHashSet();
+        Map<Set<Integer>, List<Integer>> snapshots = new HashMap<>();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(Integer.valueOf(value)), intSet.remove(value),
+                        "Метод remove работает некорректно");
+            } else if (intSet.add(value)) {
+                expected.add(value);
+            }
+            if (i % 500 == 0) {
+                snapshots.put(intSet.snapshot(), new ArrayList<>(expected));
+            }
+        }
+        assertEquals(expected, new ArrayList<>(intSet), "Нарушен порядок добавления");
+        snapshots.forEach((snapshot, values) -> {
+            assertEquals(values, new ArrayList<>(snapshot), "Снимок изменился после записи");
+            assertEquals(values.size(), snapshot.size(), "Неверный размер снимка");
+            assertEquals(new HashSet<>(values), snapshot, "Снимок изменился после записи");
+        });
+        assertThrows(UnsupportedOperationException.class, () -> intSet.snapshot().add(1),
+                "Снимок должен быть неизменяемым");
+    }
+
+    @Test
+    void capacityOverflowTest() {
+        assertThrows(IllegalArgumentException.class, () -> new IntHashSet(Integer.MAX_VALUE),
+                "Переполнение емкости не обнаружено");
+        assertThrows(IllegalArgumentException.class, () -> new IntHashSet(1 << 30),
+                "Переполнение емкости не обнаружено");
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFilmStorageTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void createAndUpdateTest() throws IOException {
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            Film created = filmStorage.create(film("Ёжик в тумане", 1975, 10));
+            assertEquals(1, created.getId(), "Неверно присвоен id");
+            assertEquals(created, filmStorage.getFilmById(1), "Фильм сохранен неверно");
+            assertThrows(FilmAlreadyExistException.class, () -> filmStorage.create(film("Ёжик в тумане", 2000, 5)),
+                    "Фильм с существующим названием добавлен");
+
+            Film updated = film("Ежик в тумане, новая версия", 1976, 11);
+            updated.setId(1);
+            updated.setLikes(Set.of(3, 1, 2));
+            filmStorage.update(updated);
+            assertEquals(updated.getName(), filmStorage.getFilmById(1).getName(), "Название не обновлено");
+            assertEquals(List.of(1, 2, 3), List.copyOf(filmStorage.getLikes(1)), "Лайки обновлены неверно");
+            filmStorage.create(film("Ёжик в тумане", 2000, 5));
+            assertEquals(2, filmStorage.getLastId(), "Старое название должно освобождаться");
+            assertThrows(FilmNotFoundException.class, () -> filmStorage.getFilmById(3), "Найден несуществующий фильм");
+            assertTrue(filmStorage.findFilmById(3).isEmpty(), "Найден несуществующий фильм");
+            assertTrue(filmStorage.containsFilm(2), "Фильм не найден");
+        }
+    }
+
+    @Test
+    void likesTest() throws IOException {
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            filmStorage.create(film("Фильм", 2000, 60));
+            for (int userId = 20; userId > 0; userId--) {
+                assertTrue(filmStorage.addLike(1, userId), "Лайк не добавлен");
+            }
+            assertFalse(filmStorage.addLike(1, 5), "Повторный лайк добавлен");
+            assertTrue(filmStorage.removeLike(1, 5), "Лайк не удален");
+            assertFalse(filmStorage.hasLike(1, 5), "Удаленный лайк остался");
+            assertTrue(filmStorage.hasLike(1, 20), "Лайк потерян при переносе блока");
+            assertArrayEquals(new boolean[]{true, false, false},
+                    filmStorage.addLikes(List.of(new Like(1, 5), new Like(1, 6), new Like(2, 1))),
+                    "Пакет лайков добавлен неверно");
+            assertArrayEquals(new int[]{20}, filmStorage.getLikeCounts(), "Неверное число лайков");
+        }
+    }
+
+    @Test
+    void queriesTest() throws IOException {
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            filmStorage.create(film("Ночной дозор", 2004, 114));
+            filmStorage.create(film("Дневной дозор", 2006, 146));
+            filmStorage.create(film("Ирония судьбы", 1975, 184));
+            filmStorage.addLike(2, 1);
+            filmStorage.addLike(2, 2);
+            filmStorage.addLike(3, 2);
+            filmStorage.addLike(1, 3);
+            filmStorage.addLike(3, 3);
+
+            assertEquals(List.of(2, 3, 1), ids(filmStorage.getPopularFilms(10)), "Неверный порядок популярных");
+            assertEquals(List.of(2, 3, 1), ids(filmStorage.getPopularFilms(Integer.MAX_VALUE)),
+                    "Большое количество должно возвращать все фильмы");
+            FilmFilter filter = FilmFilter.builder().releasedFrom(LocalDate.of(2000, 1, 1)).maxDuration(120).build();
+            assertEquals(List.of(1), ids(filmStorage.getPopularFilms(filter, 10)), "Фильтр применен неверно");
+            assertEquals(List.of(2, 3), ids(filmStorage.getFilms(1, 2)), "Неверная страница");
+            assertEquals(List.of(1, 2), ids(filmStorage.searchFilms("доз", 10)), "Неверный результат поиска");
+            assertEquals(List.of(3), filmStorage.getRecommendedFilms(1, 10), "Неверные рекомендации");
+        }
+    }
+
+    @Test
+    void reopenTest() throws IOException {
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            for (int i = 1; i <= 1500; i++) {
+                filmStorage.create(film("Фильм " + i, 2000, i));
+                filmStorage.addLike(i, i % 7);
+            }
+            filmStorage.addLike(700, 100);
+        }
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            assertEquals(1500, filmStorage.getLastId(), "Фильмы не сохранены");
+            assertEquals(1200, filmStorage.getFilmById(1200).getDuration(), "Фильм восстановлен неверно");
+            assertEquals(Set.of(3), filmStorage.getLikes(10), "Лайки не сохранены");
+            assertThrows(FilmAlreadyExistException.class, () -> filmStorage.create(film("Фильм 1000", 2000, 1)),
+                    "Индекс названий не сохранен");
+            assertEquals(List.of(700, 1), ids(filmStorage.getPopularFilms(2)), "Рейтинг не восстановлен");
+            assertEquals(List.of(1200), ids(filmStorage.searchFilms("1200", 10)), "Поисковый индекс не восстановлен");
+            filmStorage.addLike(2, 1);
+            assertEquals(List.of(9), filmStorage.getRecommendedFilms(1, 1), "Лайки пользователей не восстановлены");
+        }
+    }
+
+    @Test
+    void concurrentLikesTest() throws Exception {
+        try (MappedFilmStorage filmStorage = new MappedFilmStorage(directory)) {
+            for (int i = 1; i <= 8; i++) {
+                filmStorage.create(film("Фильм " + i, 2000, i));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int filmId = thread + 1;
+                futures.add(executor.submit(() -> {
+                    for (int userId = 1; userId <= 500 * filmId; userId++) {
+                        filmStorage.addLike(filmId, userId);
+                        filmStorage.getPopularFilms(3);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            assertEquals(List.of(8, 7, 6), ids(filmStorage.getPopularFilms(3)), "Неверный порядок популярных");
+            for (int filmId = 1; filmId <= 8; filmId++) {
+                assertEquals(500 * filmId, filmStorage.getLikes(filmId).size(), "Лайки потеряны");
+            }
+        }
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static Film film(String name, int year, int duration) {
+        return Film.builder()
+                .name(name)
+                .description("Описание " + name)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(duration)
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.FilmAlreadyExistException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoragePersistenceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverFromJournalTest() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = start(filmStorage, userStorage);
+        fill(filmStorage, userStorage);
+        persistence.close();
+
+        assertRestored(filmStorage, userStorage);
+    }
+
+    @Test
+    void recoverFromSnapshotAndJournalTest() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = start(filmStorage, userStorage);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(user(i));
+            filmStorage.create(film(i));
+        }
+        userStorage.link(1, 2);
+        filmStorage.addLike(1, 1);
+        persistence.snapshot();
+        userStorage.link(2, 3);
+        userStorage.unlink(1, 2);
+        filmStorage.addLike(2, 3);
+        persistence.close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("snapshot-2.bin", "wal-2.log"), files.map(file -> file.getFileName().toString())
+                    .sorted().collect(Collectors.toList()), "Старые сегменты журнала не удалены после снимка");
+        }
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        start(restoredFilms, restoredUsers).close();
+        assertEquals(Set.of(), restoredUsers.getFriends(1), "Неверно восстановлены друзья");
+        assertEquals(Set.of(3), restoredUsers.getFriends(2), "Неверно восстановлены друзья");
+        assertEquals(Set.of(1), restoredFilms.getLikes(1), "Неверно восстановлены лайки");
+        assertEquals(Set.of(3), restoredFilms.getLikes(2), "Неверно восстановлены лайки");
+        assertEquals(4, restoredUsers.create(user(4)).getId(), "Неверно восстановлен счетчик id");
+    }
+
+    @Test
+    void usersOnlyJournalTest() throws IOException {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = start(null, userStorage);
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(user(i));
+        }
+        userStorage.link(1, 3);
+        persistence.snapshot();
+        userStorage.link(2, 3);
+        persistence.close();
+
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        start(null, restoredUsers).close();
+        assertEquals(userStorage.getAllUsers(), restoredUsers.getAllUsers(), "Пользователи восстановлены неверно");
+        assertEquals(4, restoredUsers.create(user(4)).getId(), "Новый пользователь получил id существующего");
+    }
+
+    @Test
+    void tornTailIsSkippedTest() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = start(filmStorage, userStorage);
+        userStorage.create(user(1));
+        userStorage.create(user(2));
+        persistence.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("wal-1.log").toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        start(restoredFilms, restoredUsers).close();
+        assertEquals(1, restoredUsers.getAllUsers().size(), "Оборванная запись журнала должна быть пропущена");
+        assertEquals("user1@example.ru", restoredUsers.getUserById(1).getEmail(),
+                "Неверно восстановлен пользователь");
+    }
+
+    @Test
+    void appendRacingCloseCompletesTest() throws Exception {
+        WriteAheadLog journal = new WriteAheadLog(directory, 1, false);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<CompletableFuture<Void>>>> appenders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            appenders.add(executor.submit(() -> {
+                List<CompletableFuture<Void>> written = new ArrayList<>();
+                try {
+                    while (true) {
+                        written.add(journal.append(new byte[]{1}));
+                    }
+                } catch (IllegalStateException e) {
+                    return written;
+                }
+            }));
+        }
+        Thread.sleep(20);
+        journal.close();
+        for (Future<List<CompletableFuture<Void>>> appender : appenders) {
+            for (CompletableFuture<Void> written : appender.get(5, TimeUnit.SECONDS)) {
+                written.exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+            }
+        }
+        executor.shutdown();
+    }
+
+    private StoragePersistence start(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage)
+            throws IOException {
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, directory, false,
+                Duration.ZERO);
+        persistence.start();
+        return persistence;
+    }
+
+    private void fill(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(user(i));
+            filmStorage.create(film(i));
+        }
+        User user = user(1);
+        user.setId(1);
+        user.setName("Новое имя");
+        userStorage.update(user);
+        Film film = film(2);
+        film.setId(2);
+        film.setName("Новое название");
+        film.setLikes(Set.of(3));
+        filmStorage.update(film);
+        filmStorage.addLike(1, 2);
+        filmStorage.addLike(1, 3);
+        filmStorage.removeLike(1, 2);
+        userStorage.link(1, 2);
+        userStorage.link(3, 1);
+        userStorage.unlink(2, 1);
+    }
+
+    private void assertRestored(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage)
+            throws IOException {
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        start(restoredFilms, restoredUsers).close();
+        assertEquals(filmStorage.getAllFilms(), restoredFilms.getAllFilms(), "Фильмы восстановлены неверно");
+        assertEquals(userStorage.getAllUsers(), restoredUsers.getAllUsers(), "Пользователи восстановлены неверно");
+        assertEquals(filmStorage.getPopularFilms(3), restoredFilms.getPopularFilms(3),
+                "Рейтинг фильмов восстановлен неверно");
+        assertEquals(filmStorage.getLastId(), restoredFilms.getLastId(), "Неверно восстановлен счетчик id");
+        assertThrows(FilmAlreadyExistException.class,
+                () -> restoredFilms.create(film(1)), "Индекс названий фильмов не восстановлен");
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .email("user" + number + "@example.ru")
+                .login("login" + number)
+                .name("Имя " + number)
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build();
+    }
+
+    private static Film film(int number) {
+        return Film.builder()
+                .name("Фильм " + number)
+                .description("Описание фильма")
+                .releaseDate(LocalDate.of(2000, 10, 28))
+                .duration(60)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exception.UserAlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDbStorageTest {
+    private EmbeddedDatabase database;
+    private UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("db/schema.sql")
+                .build();
+        userStorage = new UserDbStorage(new JdbcTemplate(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void createAndUpdateTest() {
+        User user = userStorage.create(user(1));
+        assertEquals(1, user.getId(), "Пользователю присвоен неверный id");
+        assertEquals("login1", userStorage.getUserById(1).getName(), "Пустое имя должно заменяться логином");
+        userStorage.create(user(2));
+        userStorage.link(1, 2);
+        assertThrows(UserAlreadyExistException.class, () -> userStorage.create(user(1)),
+                "Пользователь с повторяющейся почтой не должен сохраняться");
+
+        User updatedUser = user(3);
+        updatedUser.setId(1);
+        updatedUser.setName("Новое имя");
+        User storedUser = userStorage.update(updatedUser);
+        assertEquals("user3@example.ru", storedUser.getEmail(), "Почта пользователя не обновлена");
+        assertEquals(Set.of(2), storedUser.getFriends(), "Обновление не должно затрагивать друзей");
+
+        User duplicate = user(2);
+        duplicate.setId(1);
+        assertThrows(UserAlreadyExistException.class, () -> userStorage.update(duplicate),
+                "Почта пользователя не должна повторяться");
+        User missing = user(4);
+        missing.setId(9);
+        assertThrows(UserNotFoundException.class, () -> userStorage.update(missing),
+                "Несуществующий пользователь не должен обновляться");
+        assertEquals(Optional.of(storedUser), userStorage.findUserById(1), "Пользователь не найден");
+        assertTrue(userStorage.findUserById(9).isEmpty(), "Несуществующий пользователь не должен находиться");
+        assertTrue(userStorage.containsUser(2), "Пользователь не найден");
+        assertFalse(userStorage.containsUser(-1), "Несуществующий пользователь не должен находиться");
+    }
+
+    @Test
+    void friendsTest() {
+        for (int i = 1; i <= 4; i++) {
+            userStorage.create(user(i));
+        }
+        assertTrue(userStorage.link(1, 2), "Друг не добавлен");
+        assertFalse(userStorage.link(2, 1), "Повторное добавление в друзья должно возвращать false");
+        userStorage.link(1, 3);
+        userStorage.link(4, 3);
+        userStorage.link(4, 2);
+        assertTrue(userStorage.link(4, 4), "Добавление себя в друзья не должно падать");
+
+        assertEquals(Set.of(2, 3), userStorage.getFriends(1), "Неверный список друзей");
+        assertEquals(Set.of(1, 4), userStorage.getFriends(2), "Дружба должна быть взаимной");
+        assertEquals(Set.of(2, 3), userStorage.getCommonFriends(1, 4), "Неверный список общих друзей");
+        assertEquals(List.of(4), userStorage.getFriendRecommendations(1, 10), "Неверные рекомендации друзей");
+        assertEquals(List.of(1), userStorage.getFriendRecommendations(4, 1), "Неверные рекомендации друзей");
+
+        assertTrue(userStorage.unlink(3, 1), "Друг не удален");
+        assertFalse(userStorage.unlink(1, 3), "Повторное удаление из друзей должно возвращать false");
+        assertEquals(Set.of(2), userStorage.getFriends(1), "Друг не удален");
+        assertEquals(Set.of(4), userStorage.getFriends(3), "Друг не удален с обеих сторон");
+        assertThrows(UserNotFoundException.class, () -> userStorage.link(1, 9),
+                "Несуществующий пользователь не должен добавляться в друзья");
+    }
+
+    @Test
+    void batchTest() {
+        List<BatchItemResult> results = userStorage.createAll(List.of(user(1), user(2), user(1), user(3)));
+        assertEquals(List.of(1, 2), List.of(results.get(0).getId(), results.get(1).getId()),
+                "Неверные id пользователей из пакета");
+        assertTrue(results.get(2).isFailed(), "Повторяющаяся почта внутри пакета не обнаружена");
+        assertFalse(results.get(3).isFailed(), "Пользователь из пакета не сохранен");
+
+        int thirdId = results.get(3).getId();
+        boolean[] linked = userStorage.linkAll(List.of(new Friendship(1, 2), new Friendship(2, 1),
+                new Friendship(thirdId, thirdId), new Friendship(1, thirdId)));
+        assertArrayEquals(new boolean[]{true, false, true, true}, linked,
+                "Неверный результат пакетного добавления друзей");
+        assertEquals(Set.of(2, thirdId), userStorage.getFriends(1), "Друзья из пакета сохранены неверно");
+        assertEquals(Set.of(1, thirdId), userStorage.getFriends(thirdId), "Друзья из пакета сохранены неверно");
+    }
+
+    @Test
+    void pageTest() {
+        for (int i = 1; i <= 5; i++) {
+            userStorage.create(user(i));
+        }
+        assertEquals(5, userStorage.getAllUsers().size(), "Неверное кол-во пользователей");
+        List<Integer> pageIds = userStorage.getUsers(0, 3).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(1, 2, 3), pageIds, "Неверная страница пользователей");
+        assertEquals(5, userStorage.getLastId(), "Неверный последний id");
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .email("user" + number + "@example.ru")
+                .login("login" + number)
+                .birthday(LocalDate.of(2000, 10, 15))
+                .build();
+    }
+}